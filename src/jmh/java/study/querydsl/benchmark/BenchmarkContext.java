@@ -0,0 +1,49 @@
+package study.querydsl.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.StudyQueryDslApplication;
+import study.querydsl.repository.support.BulkDataLoader;
+import study.querydsl.repository.support.BulkLoadSpec;
+
+/**
+ * 벤치마크용 애플리케이션 컨텍스트
+ * 내장(in-memory) H2 에 BulkDataLoader 로 members 명(팀당 평균 100명)을 넣고 시작한다.
+ * SQL 로그, SQL 추적, 검색 결과 캐시, count 캐시, repository 메트릭, SQL 실행 횟수 검사는 끈다 (쿼리 자체만 잰다).
+ */
+final class BenchmarkContext {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkContext.class);
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(long members) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(StudyQueryDslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=benchmark",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark" + members + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type=warn",
+                        "--logging.level.study.querydsl.benchmark=info",
+                        "--querydsl.sql-trace.enabled=false",
+                        "--querydsl.search-cache.enabled=false",
+                        "--querydsl.count-cache.enabled=false",
+                        "--querydsl.metrics.enabled=false",
+                        "--querydsl.statement-budget.enabled=false");
+
+        BulkLoadSpec spec = new BulkLoadSpec();
+        spec.setSeed(42);
+        spec.setMembers(members);
+        spec.setTeams((int) Math.max(1, members / 100));
+        spec.setChunkSize(10_000);
+        BulkDataLoader.BulkLoadResult result = context.getBean(BulkDataLoader.class).generate(spec);
+        log.info("seeded: {}", result);
+        return context;
+    }
+}
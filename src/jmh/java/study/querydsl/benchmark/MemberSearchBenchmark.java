@@ -0,0 +1,130 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.support.MemberSearchTemplates;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 방식별 비용 비교 (mode, 반복 횟수, gc profiler 는 build.gradle 의 jmh 블록 참고)
+ * 조건: teamName contains "team12" and age between 30 and 35 - 어떤 규모에서도 결과가 수천 건 이하
+ *
+ * searchNullEx / search 는 조건 모양별 JPQL 템플릿 + 팀 이름 trigram 인덱스를 쓰므로,
+ * 원래의 Querydsl allOf 방식과 템플릿의 LIKE 방식을 따로 측정한다.
+ */
+@State(Scope.Benchmark)
+public class MemberSearchBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public long members;
+
+    private ConfigurableApplicationContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private EntityManager em;
+    private JPAQueryFactory queryFactory;
+
+    private MemberSearchCondition condition;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(members);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        em = context.getBean(EntityManager.class);
+        queryFactory = new JPAQueryFactory(em);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team12");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(35);
+        pageable = PageRequest.of(0, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchNotNullEx() {
+        return memberJpaRepository.searchNotNullEx(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchNullEx() {
+        return memberJpaRepository.searchNullEx(condition);
+    }
+
+    /**
+     * 템플릿 도입 전의 searchNullEx (Querydsl allOf)
+     */
+    @Benchmark
+    public List<MemberTeamDto> searchAllOfQuerydsl() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .join(member.team, team)
+                .where(memberJpaRepository.memberCond(condition.getUsername(),
+                        condition.getTeamName(),
+                        condition.getAgeGoe(),
+                        condition.getAgeLoe()))
+                .fetch();
+    }
+
+    /**
+     * 템플릿 + LIKE (trigram 인덱스 없이)
+     */
+    @Benchmark
+    public List<MemberTeamDto> searchTemplateLike() {
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        return MemberSearchTemplates.createQuery(em, key).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchSimple() {
+        return memberRepository.searchSimple(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchComplex() {
+        return memberRepository.searchComplex(condition, pageable);
+    }
+}
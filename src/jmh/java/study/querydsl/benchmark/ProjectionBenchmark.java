@@ -0,0 +1,112 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.FastProjections;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * DB 없이 row(Object[]) -> DTO 변환 비용만 비교한다.
+ * 한 번의 호출이 ROWS 건을 변환하므로 thrpt 는 rows/ms, gc.alloc.rate.norm 은 row 당 할당 바이트가 된다.
+ */
+@State(Scope.Thread)
+public class ProjectionBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    private Object[][] memberRows;
+    private Object[][] memberTeamRows;
+
+    private FactoryExpression<MemberDto> bean;
+    private FactoryExpression<MemberDto> fields;
+    private FactoryExpression<MemberDto> constructor;
+    private FactoryExpression<MemberDto> fastBean;
+    private FactoryExpression<MemberDto> fastFields;
+    private FactoryExpression<MemberDto> fastConstructor;
+    private FactoryExpression<MemberTeamDto> queryProjection;
+    private FactoryExpression<MemberTeamDto> fastMemberTeam;
+
+    @Setup
+    public void setUp() {
+        memberRows = new Object[ROWS][];
+        memberTeamRows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            memberRows[i] = new Object[]{"member" + i, i % 80};
+            memberTeamRows[i] = new Object[]{(long) i, "member" + i, i % 80, (long) i / 100, "team" + i / 100};
+        }
+
+        bean = Projections.bean(MemberDto.class, member.username, member.age);
+        fields = Projections.fields(MemberDto.class, member.username, member.age);
+        constructor = Projections.constructor(MemberDto.class, member.username, member.age);
+        fastBean = FastProjections.bean(MemberDto.class, member.username, member.age);
+        fastFields = FastProjections.fields(MemberDto.class, member.username, member.age);
+        fastConstructor = FastProjections.constructor(MemberDto.class, member.username, member.age);
+        queryProjection = new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name);
+        fastMemberTeam = FastProjections.constructor(MemberTeamDto.class, member.id, member.username, member.age, team.id, team.name);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void projectionsBean(Blackhole blackhole) {
+        run(bean, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void projectionsFields(Blackhole blackhole) {
+        run(fields, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void projectionsConstructor(Blackhole blackhole) {
+        run(constructor, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void fastBean(Blackhole blackhole) {
+        run(fastBean, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void fastFields(Blackhole blackhole) {
+        run(fastFields, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void fastConstructor(Blackhole blackhole) {
+        run(fastConstructor, memberRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void queryProjection(Blackhole blackhole) {
+        run(queryProjection, memberTeamRows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void fastMemberTeam(Blackhole blackhole) {
+        run(fastMemberTeam, memberTeamRows, blackhole);
+    }
+
+    private void run(FactoryExpression<?> projection, Object[][] rows, Blackhole blackhole) {
+        for (Object[] row : rows) {
+            blackhole.consume(projection.newInstance(row));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.TeamNameIndex;
+import study.querydsl.repository.support.MemberSearchTemplates;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 같은 데이터, 같은 템플릿에서 팀 이름 조건만 바꿔 DB 까지 포함한 비용을 비교한다
+ * t.name like '%x%' vs t.id in (:ids) (ids 는 TeamNameIndex 로 미리 구함) vs 인덱스 조회 + t.id in
+ * teamName 은 매칭되는 팀이 많은 것(team12: 111개) / 하나인 것 (팀 이름은 team0 ~ team{members / 100 - 1})
+ */
+@State(Scope.Benchmark)
+public class TeamNameFilterBenchmark {
+
+    @Param({"1000000"})
+    public long members;
+
+    @Param({"team12", "team1234"})
+    public String teamName;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private TeamNameIndex teamNameIndex;
+
+    private MemberSearchKey key;
+    private Set<Long> teamIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(members);
+        em = context.getBean(EntityManager.class);
+        teamNameIndex = context.getBean(TeamNameIndex.class);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(35);
+        key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        teamIds = teamNameIndex.findTeamIds(key);
+        if (teamIds == null || teamIds.isEmpty()) {
+            throw new IllegalStateException("teamName must match between 1 and the index limit of teams: " + teamName);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> nameLike() {
+        return MemberSearchTemplates.createQuery(em, key).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> idIn() {
+        return MemberSearchTemplates.createQuery(em, key, teamIds).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> indexLookupAndIdIn() {
+        return MemberSearchTemplates.createQuery(em, key, teamNameIndex.findTeamIds(key)).getResultList();
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.repository.cache.TeamNameIndex;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DB 없이 팀 이름 contains 탐색 비용만 비교한다: trigram 인덱스 vs LIKE '%x%' 와 같은 선형 탐색
+ */
+@State(Scope.Benchmark)
+public class TeamNameIndexBenchmark {
+
+    @Param({"200000"})
+    private int teams;
+
+    @Param({"team123", "9999", "m1000", "42"})
+    private String query;
+
+    private TeamNameIndex.Trigrams trigrams;
+    private Map<Long, String> names;
+
+    @Setup
+    public void setUp() {
+        trigrams = new TeamNameIndex.Trigrams();
+        names = new HashMap<>();
+        for (long id = 1; id <= teams; id++) {
+            String name = "team" + id;
+            trigrams.put(id, name);
+            names.put(id, name);
+        }
+    }
+
+    @Benchmark
+    public Set<Long> trigramIndex() {
+        return trigrams.find(query);
+    }
+
+    @Benchmark
+    public Set<Long> linearScan() {
+        Set<Long> result = new HashSet<>();
+        names.forEach((id, name) -> {
+            if (name.contains(query)) {
+                result.add(id);
+            }
+        });
+        return result;
+    }
+}
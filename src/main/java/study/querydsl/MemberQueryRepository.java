@@ -4,6 +4,7 @@ package study.querydsl;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 
 import javax.persistence.EntityManager;
@@ -13,6 +14,7 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberQueryRepository {
 
     private final JPAQueryFactory query;
@@ -0,0 +1,38 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import study.querydsl.repository.support.BulkDataLoader;
+import study.querydsl.repository.support.BulkLoadSpec;
+
+import java.nio.file.Paths;
+
+/**
+ * bulk 프로필로 실행하면 시작할 때 querydsl.bulk-load.* 설정대로 데이터를 적재한다.
+ * ex) --spring.profiles.active=bulk --querydsl.bulk-load.members=10000000 --querydsl.bulk-load.team-skew=1.1
+ */
+@Slf4j
+@Configuration
+@Profile("bulk")
+public class BulkLoadConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "querydsl.bulk-load")
+    public BulkLoadSpec bulkLoadSpec() {
+        return new BulkLoadSpec();
+    }
+
+    @Bean
+    public ApplicationRunner bulkLoadRunner(BulkDataLoader bulkDataLoader, BulkLoadSpec spec) {
+        return args -> {
+            BulkDataLoader.BulkLoadResult result = spec.getFile() != null
+                    ? bulkDataLoader.ingest(Paths.get(spec.getFile()), spec.getChunkSize())
+                    : bulkDataLoader.generate(spec);
+            log.info("bulk load finished: {}", result);
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate 에는 StatementInspector 를 하나만 등록할 수 있으므로 여러 개를 순서대로 호출한다.
+ */
+public class CompositeStatementInspector implements StatementInspector {
+
+    private final StatementInspector[] inspectors;
+
+    public CompositeStatementInspector(StatementInspector... inspectors) {
+        this.inspectors = inspectors;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        for (StatementInspector inspector : inspectors) {
+            String inspected = inspector.inspect(sql);
+            if (inspected != null) {
+                sql = inspected;
+            }
+        }
+        return sql;
+    }
+}
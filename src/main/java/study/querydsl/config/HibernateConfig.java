@@ -0,0 +1,19 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.repository.cache.MemberWriteTracker;
+import study.querydsl.repository.support.SqlStatementBudget;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(MemberWriteTracker memberWriteTracker,
+                                                                     SqlStatementBudget sqlStatementBudget) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new CompositeStatementInspector(memberWriteTracker, sqlStatementBudget));
+    }
+}
@@ -0,0 +1,182 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpSession;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * readOnly 트랜잭션은 replica 로, 그 외(쓰기, bulk update/delete, 트랜잭션 밖)는 primary 로 보낸다.
+ * 트랜잭션의 readOnly 여부가 정해진 뒤에 커넥션을 얻어야 하므로 LazyConnectionDataSourceProxy 로 감싸서 써야 한다.
+ *
+ * replica 지연 대비: 쓰기 트랜잭션이 커밋된 뒤 maxLag 동안은 같은 일관성 키의 읽기도 primary 로 보낸다 (방금 쓴 값을 바로 읽는 경우).
+ * 일관성 키는 HTTP 세션 id (세션이 없으면 그 요청), 요청 밖(배치, 백그라운드 스레드)에서는 스레드다.
+ * 그래서 같은 사용자의 다음 요청이 다른 스레드에서 처리되어도 primary 로 가고,
+ * 같은 풀 스레드를 이어 받은 다른 요청은 앞 요청의 쓰기 때문에 primary 로 몰리지 않는다.
+ * 지난 기록은 기록이 MAX_TRACKED_KEYS 를 넘을 때 maxLag 가 지난 것부터 지운다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public enum Selection {ROUND_ROBIN, LEAST_LOADED}
+
+    static final String PRIMARY = "primary";
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private final DataSource[] replicas;
+    private final String[] replicaKeys;
+    private final Selection selection;
+    private final long maxLagNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Supplier<Object> consistencyKey;
+    // 일관성 키별 마지막 쓰기 커밋 시각
+    private final ConcurrentMap<Object, Long> lastWriteCommitNanos = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                                      Selection selection, Duration maxLag) {
+        this(primary, replicas, selection, maxLag, ReadWriteRoutingDataSource::sessionOrRequestKey);
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                                      Selection selection, Duration maxLag, Supplier<Object> consistencyKey) {
+        this.consistencyKey = consistencyKey;
+        this.replicas = replicas.toArray(new DataSource[0]);
+        this.replicaKeys = new String[this.replicas.length];
+        this.selection = selection;
+        this.maxLagNanos = maxLag.toNanos();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.length; i++) {
+            replicaKeys[i] = "replica-" + i;
+            targets.put(replicaKeys[i], this.replicas[i]);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            watchWriteCommit();
+            return PRIMARY;
+        }
+        if (replicas.length == 0 || recentlyWritten()) {
+            return PRIMARY;
+        }
+        return replicaKeys[selectReplica()];
+    }
+
+    /**
+     * HTTP 세션 id, 세션이 없으면 그 요청, 요청 밖이면 현재 스레드 (세션을 새로 만들지는 않는다)
+     */
+    static Object sessionOrRequestKey() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpSession session = ((ServletRequestAttributes) attributes).getRequest().getSession(false);
+            return session != null ? session.getId() : attributes;
+        }
+        return Thread.currentThread();
+    }
+
+    /**
+     * primary 와 replica 의 커넥션 풀을 닫는다
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    private int selectReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.length);
+        if (selection == Selection.ROUND_ROBIN) {
+            return start;
+        }
+        // 활성 커넥션이 가장 적은 replica, 같으면 round-robin 순서
+        int best = start;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            int active = activeConnections(replicas[index]);
+            if (active < bestActive) {
+                best = index;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections(); // 아직 풀이 시작되지 않음
+        }
+        return 0;
+    }
+
+    private boolean recentlyWritten() {
+        if (maxLagNanos <= 0 || lastWriteCommitNanos.isEmpty()) {
+            return false;
+        }
+        Object key = consistencyKey.get();
+        Long lastWrite = key == null ? null : lastWriteCommitNanos.get(key);
+        return lastWrite != null && System.nanoTime() - lastWrite < maxLagNanos;
+    }
+
+    /**
+     * 쓰기 트랜잭션이 커밋되면 그 시각을 지금의 일관성 키로 기록한다
+     */
+    private void watchWriteCommit() {
+        if (maxLagNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof WriteCommitWatcher) {
+                return;
+            }
+        }
+        Object key = consistencyKey.get();
+        if (key != null) {
+            TransactionSynchronizationManager.registerSynchronization(new WriteCommitWatcher(key));
+        }
+    }
+
+    private void evictExpired(long now) {
+        lastWriteCommitNanos.values().removeIf(lastWrite -> now - lastWrite >= maxLagNanos);
+    }
+
+    private class WriteCommitWatcher implements TransactionSynchronization {
+        private final Object key;
+
+        WriteCommitWatcher(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void afterCommit() {
+            long now = System.nanoTime();
+            lastWriteCommitNanos.put(key, now);
+            if (lastWriteCommitNanos.size() > MAX_TRACKED_KEYS) {
+                evictExpired(now);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * querydsl.replica.enabled=true 이면 spring.datasource.* 를 primary 로, querydsl.replica.urls 를 replica 로 쓴다.
+ * replica 는 primary 와 같은 계정을 쓰고, 스키마와 데이터는 복제로 맞춰져 있어야 한다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "querydsl.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements DisposableBean {
+
+    private ReadWriteRoutingDataSource routing;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 @Value("${querydsl.replica.urls}") List<String> replicaUrls,
+                                 @Value("${querydsl.replica.selection:ROUND_ROBIN}") ReadWriteRoutingDataSource.Selection selection,
+                                 @Value("${querydsl.replica.max-lag:1s}") Duration maxLag) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        routing = new ReadWriteRoutingDataSource(primary, replicas, selection, maxLag);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (routing != null) {
+            routing.close();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.MemberSearchTemplates;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 public 메서드별 실행 시간(p50/p95/p99, 애플리케이션에서 계산)과 반환 row 수
+ * - querydsl.repository.calls : class, method, shape(설정된 검색 조건), outcome 태그
+ * - querydsl.repository.rows  : class, method, shape 태그
+ * /actuator/metrics/querydsl.repository.calls?tag=method:searchComplex 처럼 조회한다.
+ *
+ * 태그 조합이 클래스 x 메서드 x shape(16) x outcome 이므로 histogram 버킷(publishPercentileHistogram)은 내보내지 않는다.
+ *
+ * querydsl.metrics.enabled=false 이면 aspect 빈 자체가 없으므로 프록시도, 호출당 비용도 없다.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "querydsl.metrics.enabled", havingValue = "true")
+public class RepositoryMetricsAspect {
+
+    private static final String NO_SHAPE = "none";
+    private static final String[] SHAPE_TAGS = new String[MemberSearchTemplates.SHAPES];
+
+    static {
+        for (int shape = 0; shape < MemberSearchTemplates.SHAPES; shape++) {
+            SHAPE_TAGS[shape] = shapeTag(shape);
+        }
+    }
+
+    private final MeterRegistry registry;
+    // 메서드 -> 처음 호출한 클래스의 미터, 상속받은 메서드(QueryDslSupportRepository 등)를 다른 클래스가 부르면 그 미터의 otherClasses 에서 찾는다
+    private final ConcurrentMap<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("(execution(public * study.querydsl.repository.MemberJpaRepository.*(..))"
+            + " || execution(public * study.querydsl.repository.MemberRepositoryImpl.*(..))"
+            + " || execution(public * study.querydsl.MemberQueryRepository.*(..))"
+            + " || execution(public * study.querydsl.repository.support.QueryDslSupportRepository+.*(..)))"
+            + " && !execution(* *..*Cond(..)) && !execution(* set*(..)) && !execution(void validate())")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = joinPoint.getTarget().getClass();
+        MethodMeters methodMeters = meters.get(method);
+        if (methodMeters == null || methodMeters.targetClass != targetClass) {
+            methodMeters = lookup(method, targetClass);
+        }
+        int shape = shapeOf(joinPoint.getArgs());
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            methodMeters.timer(shape, true).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        methodMeters.timer(shape, false).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        long rows = rowsOf(result);
+        if (rows >= 0) {
+            methodMeters.rows(shape).record(rows);
+        }
+        return result;
+    }
+
+    /**
+     * 처음 호출이거나 상속받은 메서드를 다른 클래스가 부른 경우 (람다 없이 putIfAbsent)
+     */
+    private MethodMeters lookup(Method method, Class<?> targetClass) {
+        MethodMeters first = meters.get(method);
+        if (first == null) {
+            MethodMeters created = new MethodMeters(targetClass, method.getName());
+            first = meters.putIfAbsent(method, created);
+            if (first == null) {
+                return created;
+            }
+        }
+        if (first.targetClass == targetClass) {
+            return first;
+        }
+        MethodMeters other = first.otherClasses.get(targetClass);
+        if (other == null) {
+            MethodMeters created = new MethodMeters(targetClass, method.getName());
+            other = first.otherClasses.putIfAbsent(targetClass, created);
+            if (other == null) {
+                return created;
+            }
+        }
+        return other;
+    }
+
+    /**
+     * @return MemberSearchCondition 인자가 없으면 SHAPES (= shape 태그 none)
+     */
+    private static int shapeOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                return MemberSearchTemplates.shapeOf((MemberSearchCondition) arg);
+            }
+        }
+        return MemberSearchTemplates.SHAPES;
+    }
+
+    /**
+     * @return 반환된 row 수, 알 수 없으면 -1
+     */
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof CursorPage) {
+            return ((CursorPage<?>) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static String shapeTag(int shape) {
+        StringBuilder tag = new StringBuilder();
+        if ((shape & MemberSearchTemplates.USERNAME) != 0) {
+            tag.append("username+");
+        }
+        if ((shape & MemberSearchTemplates.TEAM_NAME) != 0) {
+            tag.append("teamName+");
+        }
+        if ((shape & MemberSearchTemplates.AGE_GOE) != 0) {
+            tag.append("ageGoe+");
+        }
+        if ((shape & MemberSearchTemplates.AGE_LOE) != 0) {
+            tag.append("ageLoe+");
+        }
+        return tag.length() == 0 ? "empty" : tag.substring(0, tag.length() - 1);
+    }
+
+    /**
+     * 메서드 하나의 미터 (shape 별로 처음 쓰일 때 등록하고 이후에는 배열에서 꺼낸다)
+     */
+    private class MethodMeters {
+        private final Class<?> targetClass;
+        private final ConcurrentMap<Class<?>, MethodMeters> otherClasses = new ConcurrentHashMap<>();
+        private final String className;
+        private final String methodName;
+        private final Timer[] success = new Timer[MemberSearchTemplates.SHAPES + 1];
+        private final Timer[] error = new Timer[MemberSearchTemplates.SHAPES + 1];
+        private final DistributionSummary[] rows = new DistributionSummary[MemberSearchTemplates.SHAPES + 1];
+
+        MethodMeters(Class<?> targetClass, String methodName) {
+            this.targetClass = targetClass;
+            this.className = ClassUtils.getUserClass(targetClass).getSimpleName();
+            this.methodName = methodName;
+        }
+
+        Timer timer(int shape, boolean failed) {
+            Timer[] timers = failed ? error : success;
+            Timer timer = timers[shape];
+            if (timer == null) {
+                timer = Timer.builder("querydsl.repository.calls")
+                        .tag("class", className)
+                        .tag("method", methodName)
+                        .tag("shape", tagOf(shape))
+                        .tag("outcome", failed ? "error" : "success")
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry);
+                timers[shape] = timer; // 경쟁해도 registry 가 같은 미터를 돌려준다
+            }
+            return timer;
+        }
+
+        DistributionSummary rows(int shape) {
+            DistributionSummary summary = rows[shape];
+            if (summary == null) {
+                summary = DistributionSummary.builder("querydsl.repository.rows")
+                        .baseUnit("rows")
+                        .tag("class", className)
+                        .tag("method", methodName)
+                        .tag("shape", tagOf(shape))
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry);
+                rows[shape] = summary;
+            }
+            return summary;
+        }
+
+        private String tagOf(int shape) {
+            return shape == MemberSearchTemplates.SHAPES ? NO_SHAPE : SHAPE_TAGS[shape];
+        }
+    }
+}
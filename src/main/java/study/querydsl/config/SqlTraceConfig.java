@@ -0,0 +1,47 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.repository.support.SqlTracer;
+import study.querydsl.repository.support.TracingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * DataSource 를 TracingDataSource 로 감싼다 (p6spy 와 Hibernate SQL/바인딩 로그 대신)
+ * 느린 SQL 은 /actuator/sqltrace 로 본다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "querydsl.sql-trace.enabled", havingValue = "true")
+public class SqlTraceConfig {
+
+    @Bean
+    public SqlTracer sqlTracer(@Value("${querydsl.sql-trace.sample-rate:1000}") int sampleRate,
+                               @Value("${querydsl.sql-trace.slow-threshold:100ms}") Duration slowThreshold,
+                               @Value("${querydsl.sql-trace.buffer-size:256}") int bufferSize) {
+        return new SqlTracer(sampleRate, slowThreshold, bufferSize);
+    }
+
+    @Bean
+    public SqlTraceEndpoint sqlTraceEndpoint(SqlTracer sqlTracer) {
+        return new SqlTraceEndpoint(sqlTracer);
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<SqlTracer> sqlTracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource((DataSource) bean, sqlTracer.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
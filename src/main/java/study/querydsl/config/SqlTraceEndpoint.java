@@ -0,0 +1,40 @@
+package study.querydsl.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import study.querydsl.repository.support.SqlTracer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET /actuator/sqltrace : 실행 / 샘플링 / 느린 SQL 건수와 링 버퍼의 느린 SQL
+ * DELETE /actuator/sqltrace : 링 버퍼 비우기
+ */
+@Endpoint(id = "sqltrace")
+public class SqlTraceEndpoint {
+
+    private final SqlTracer sqlTracer;
+
+    public SqlTraceEndpoint(SqlTracer sqlTracer) {
+        this.sqlTracer = sqlTracer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> trace() {
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("sampleRate", sqlTracer.getSampleRate());
+        trace.put("slowThresholdMillis", sqlTracer.getSlowThreshold().toMillis());
+        trace.put("executed", sqlTracer.getExecuted());
+        trace.put("sampled", sqlTracer.getSampled());
+        trace.put("slow", sqlTracer.getSlow());
+        trace.put("slowStatements", sqlTracer.slowStatements());
+        return trace;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        sqlTracer.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.repository.support.SqlStatementBudget;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 SqlStatementBudget 의 범위로 묶는다.
+ */
+@Component
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private final SqlStatementBudget sqlStatementBudget;
+
+    public StatementBudgetFilter(SqlStatementBudget sqlStatementBudget) {
+        this.sqlStatementBudget = sqlStatementBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (SqlStatementBudget.Scope ignored = sqlStatementBudget.open(request.getMethod() + " " + request.getRequestURI())) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -1,27 +1,73 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.MemberSearchJsonWriter;
 
-import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_CURSOR_SIZE = 1000;
+    private static final String NDJSON = "application/x-ndjson";
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberSearchJsonWriter memberSearchJsonWriter;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * searchNullEx 와 같은 결과를 DTO 없이 ResultSet 에서 응답으로 바로 쓴다.
+     */
+    @GetMapping(value = "/v1/members", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void searchMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            memberSearchJsonWriter.writeArray(condition, generator);
+        }
+    }
+
+    /**
+     * v1 과 같은 조건을 NDJSON(한 줄에 한 건)으로 응답에 바로 쓴다.
+     */
+    @GetMapping(value = "/v1/members/export", produces = NDJSON)
+    public void exportMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
 
-    @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.searchNullEx(condition);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            memberSearchJsonWriter.writeLines(condition, generator);
+        }
+    }
+
+    /**
+     * v1 과 같은 응답이지만 서버에서는 결과를 컬럼 배열로 들고 있다가 바로 JSON 으로 쓴다 (대량 조회용)
+     */
+    @GetMapping("/v1/members/columns")
+    public MemberTeamColumns searchMemberColumnsV1(MemberSearchCondition condition) {
+        return memberJpaRepository.searchColumns(condition);
     }
 
     @GetMapping("/v2/members")
@@ -29,9 +75,38 @@ public class MemberController {
         return memberRepository.searchSimple(condition, pageable);
     }
 
+    /**
+     * estimatedTotal=true 이면 count 쿼리 대신 추정한 전체 건수를 돌려준다 (응답의 totalExact 로 구분)
+     */
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean estimatedTotal) {
+        if (estimatedTotal) {
+            return memberRepository.searchEstimated(condition, pageable);
+        }
         return memberRepository.searchComplex(condition, pageable);
     }
 
+    @GetMapping("/v4/members")
+    public CursorPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "id") String sort,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        MemberCursor memberCursor;
+        try {
+            memberCursor = cursor != null ? MemberCursor.decode(cursor) : MemberCursor.first(MemberCursor.SortKey.from(sort));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return memberRepository.searchByCursor(condition, memberCursor, Math.min(Math.max(size, 1), MAX_CURSOR_SIZE));
+    }
+
+    /**
+     * 전체 건수 없이 다음 페이지 여부만 필요한 클라이언트(무한 스크롤)용
+     */
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSlice(condition, pageable);
+    }
+
 }
@@ -0,0 +1,25 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.entity.TeamRepository;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamRepository teamRepository;
+
+    /**
+     * 팀 이름 순으로 팀을 페이징하고 팀마다 소속 회원을 같이 돌려준다.
+     */
+    @GetMapping("/v1/teams")
+    public Page<TeamMembersDto> searchTeamV1(@RequestParam(required = false) String teamName, Pageable pageable) {
+        return teamRepository.searchTeamsWithMembers(teamName, pageable);
+    }
+}
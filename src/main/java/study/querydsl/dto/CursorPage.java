@@ -0,0 +1,25 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 커서 기반 페이지 결과
+ * 다음 페이지가 없으면 nextCursor 는 null
+ */
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+    }
+}
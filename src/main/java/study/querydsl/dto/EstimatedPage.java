@@ -0,0 +1,34 @@
+package study.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * 전체 건수가 정확한 값인지 추정치인지 함께 알려주는 Page
+ * 추정치일 때 totalErrorBound 는 95% 신뢰구간의 반폭(±)
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+    private final long totalErrorBound;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalExact, long totalErrorBound) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+        this.totalErrorBound = totalExact ? 0 : totalErrorBound;
+    }
+
+    public static <T> EstimatedPage<T> exact(List<T> content, Pageable pageable, long total) {
+        return new EstimatedPage<>(content, pageable, total, true, 0);
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    public long getTotalErrorBound() {
+        return totalErrorBound;
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징 커서
+ * 마지막으로 읽은 memberId (정렬 키가 age 이면 age 포함)를 불투명한 문자열로 인코딩한다.
+ */
+@Getter
+public class MemberCursor {
+
+    public enum SortKey {
+        ID, AGE;
+
+        public static SortKey from(String value) {
+            return value == null ? ID : valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private final SortKey sortKey;
+    private final Long memberId;
+    private final Integer age;
+
+    private MemberCursor(SortKey sortKey, Long memberId, Integer age) {
+        this.sortKey = sortKey;
+        this.memberId = memberId;
+        this.age = age;
+    }
+
+    public static MemberCursor first(SortKey sortKey) {
+        return new MemberCursor(sortKey, null, null);
+    }
+
+    public static MemberCursor after(SortKey sortKey, MemberTeamDto last) {
+        return new MemberCursor(sortKey, last.getMemberId(), last.getAge());
+    }
+
+    public boolean isFirst() {
+        return memberId == null;
+    }
+
+    public String encode() {
+        String raw = sortKey == SortKey.AGE
+                ? "a." + age + "." + memberId
+                : "i." + memberId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\.");
+            if (parts.length == 2 && parts[0].equals("i")) {
+                return new MemberCursor(SortKey.ID, Long.valueOf(parts[1]), null);
+            }
+            if (parts.length == 3 && parts[0].equals("a")) {
+                return new MemberCursor(SortKey.AGE, Long.valueOf(parts[2]), Integer.valueOf(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // 아래에서 같은 예외로 처리
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+}
@@ -0,0 +1,262 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 대량 조회용 MemberTeamDto 목록
+ * row 마다 객체를 만들지 않고 컬럼별 배열에 담는다.
+ * - memberId, age: primitive 배열
+ * - username: UTF-8 바이트를 한 배열에 이어 붙이고 offset 으로 나눈다
+ * - team: 결과 안에서 팀마다 코드를 붙이고 (teamId, teamName) 은 코드별로 한 번만 둔다
+ *
+ * asList() 는 읽을 때마다 MemberTeamDto 를 만드는 view 이고,
+ * JSON 은 DTO 를 거치지 않고 List<MemberTeamDto> 와 같은 모양(객체 배열)으로 바로 쓴다.
+ */
+@JsonSerialize(using = MemberTeamColumns.JsonWriter.class)
+public final class MemberTeamColumns {
+
+    private static final int NO_TEAM = -1;
+
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final byte[] usernameBytes;
+    private final int[] usernameOffsets; // size + 1 개, i 번째 username 은 [offsets[i], offsets[i + 1])
+    private final BitSet nullUsernames;
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private final byte[][] teamNameBytes;
+
+    private MemberTeamColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.teamCodes = Arrays.copyOf(builder.teamCodes, size);
+        this.usernameBytes = Arrays.copyOf(builder.usernameBytes, builder.usernameOffsets[size]);
+        this.usernameOffsets = Arrays.copyOf(builder.usernameOffsets, size + 1);
+        this.nullUsernames = (BitSet) builder.nullUsernames.clone();
+        this.teamIds = Arrays.copyOf(builder.teamIds, builder.teams);
+        this.teamNames = Arrays.copyOf(builder.teamNames, builder.teams);
+        this.teamNameBytes = new byte[builder.teams][];
+        for (int i = 0; i < builder.teams; i++) {
+            teamNameBytes[i] = teamNames[i] == null ? null : teamNames[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder(64);
+    }
+
+    public static MemberTeamColumns of(List<MemberTeamDto> rows) {
+        Builder builder = new Builder(Math.max(rows.size(), 1));
+        rows.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMemberId(int index) {
+        return memberIds[checkIndex(index)];
+    }
+
+    public String getUsername(int index) {
+        checkIndex(index);
+        if (nullUsernames.get(index)) {
+            return null;
+        }
+        int from = usernameOffsets[index];
+        return new String(usernameBytes, from, usernameOffsets[index + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    public int getAge(int index) {
+        return ages[checkIndex(index)];
+    }
+
+    public Long getTeamId(int index) {
+        int code = teamCodes[checkIndex(index)];
+        return code == NO_TEAM ? null : teamIds[code];
+    }
+
+    public String getTeamName(int index) {
+        int code = teamCodes[checkIndex(index)];
+        return code == NO_TEAM ? null : teamNames[code];
+    }
+
+    public MemberTeamDto get(int index) {
+        return new MemberTeamDto(getMemberId(index), getUsername(index), getAge(index), getTeamId(index), getTeamName(index));
+    }
+
+    /**
+     * 결과에 나온 팀 수
+     */
+    public int teamCount() {
+        return teamIds.length;
+    }
+
+    /**
+     * 복사하지 않는 읽기 전용 view (get 할 때마다 DTO 를 새로 만든다)
+     */
+    public List<MemberTeamDto> asList() {
+        return new ListView();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    private class ListView extends AbstractList<MemberTeamDto> implements RandomAccess {
+
+        @Override
+        public MemberTeamDto get(int index) {
+            return MemberTeamColumns.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    public static final class Builder {
+
+        private int size;
+        private long[] memberIds;
+        private int[] ages;
+        private int[] teamCodes;
+        private byte[] usernameBytes;
+        private int[] usernameOffsets;
+        private final BitSet nullUsernames = new BitSet();
+
+        private int teams;
+        private long[] teamIds = new long[16];
+        private String[] teamNames = new String[16];
+        private final Map<Long, Integer> teamCodesById = new HashMap<>();
+
+        private Builder(int capacity) {
+            this.memberIds = new long[capacity];
+            this.ages = new int[capacity];
+            this.teamCodes = new int[capacity];
+            this.usernameBytes = new byte[capacity * 8];
+            this.usernameOffsets = new int[capacity + 1];
+        }
+
+        public Builder add(MemberTeamDto dto) {
+            return add(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+        }
+
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+                usernameOffsets = Arrays.copyOf(usernameOffsets, capacity + 1);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            teamCodes[size] = teamId == null ? NO_TEAM : teamCode(teamId, teamName);
+
+            int offset = usernameOffsets[size];
+            if (username == null) {
+                nullUsernames.set(size);
+            } else {
+                byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+                if (offset + bytes.length > usernameBytes.length) {
+                    usernameBytes = Arrays.copyOf(usernameBytes, Math.max(usernameBytes.length * 2, offset + bytes.length));
+                }
+                System.arraycopy(bytes, 0, usernameBytes, offset, bytes.length);
+                offset += bytes.length;
+            }
+            usernameOffsets[++size] = offset;
+            return this;
+        }
+
+        private int teamCode(Long teamId, String teamName) {
+            Integer code = teamCodesById.get(teamId);
+            if (code != null) {
+                return code;
+            }
+            if (teams == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, teams * 2);
+                teamNames = Arrays.copyOf(teamNames, teams * 2);
+            }
+            teamIds[teams] = teamId;
+            teamNames[teams] = teamName;
+            teamCodesById.put(teamId, teams);
+            return teams++;
+        }
+
+        public MemberTeamColumns build() {
+            return new MemberTeamColumns(this);
+        }
+    }
+
+    /**
+     * MemberTeamDto 를 Jackson 으로 쓴 것과 같은 JSON (필드 순서, null 포함)
+     * 바이트로 쓰는 generator (HTTP 응답) 이면 문자열은 미리 인코딩해 둔 UTF-8 바이트를 그대로 쓴다.
+     */
+    public static class JsonWriter extends StdSerializer<MemberTeamColumns> {
+
+        public JsonWriter() {
+            super(MemberTeamColumns.class);
+        }
+
+        @Override
+        public void serialize(MemberTeamColumns columns, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            boolean utf8 = gen instanceof UTF8JsonGenerator; // Writer 기반 generator 는 writeUTF8String 을 지원하지 않는다
+            gen.writeStartArray(columns, columns.size);
+            for (int i = 0; i < columns.size; i++) {
+                int code = columns.teamCodes[i];
+                gen.writeStartObject();
+                gen.writeNumberField("memberId", columns.memberIds[i]);
+                gen.writeFieldName("username");
+                if (columns.nullUsernames.get(i)) {
+                    gen.writeNull();
+                } else if (!utf8) {
+                    gen.writeString(columns.getUsername(i));
+                } else {
+                    int from = columns.usernameOffsets[i];
+                    gen.writeUTF8String(columns.usernameBytes, from, columns.usernameOffsets[i + 1] - from);
+                }
+                gen.writeNumberField("age", columns.ages[i]);
+                gen.writeFieldName("teamId");
+                if (code == NO_TEAM) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(columns.teamIds[code]);
+                }
+                gen.writeFieldName("teamName");
+                byte[] teamName = code == NO_TEAM ? null : columns.teamNameBytes[code];
+                if (teamName == null) {
+                    gen.writeNull();
+                } else if (!utf8) {
+                    gen.writeString(columns.teamNames[code]);
+                } else {
+                    gen.writeUTF8String(teamName, 0, teamName.length);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
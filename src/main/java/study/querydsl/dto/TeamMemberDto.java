@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * TeamMembersDto 안의 회원
+ */
+@Data
+@NoArgsConstructor
+public class TeamMemberDto {
+
+    private Long memberId;
+    private String username;
+    private int age;
+
+    @QueryProjection
+    public TeamMemberDto(Long memberId, String username, int age) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+    }
+}
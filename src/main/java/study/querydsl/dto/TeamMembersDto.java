@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 팀과 소속 회원 (회원은 id 순)
+ */
+@Data
+@NoArgsConstructor
+public class TeamMembersDto {
+
+    private Long teamId;
+    private String teamName;
+
+    private List<TeamMemberDto> members = new ArrayList<>();
+
+    public TeamMembersDto(Long teamId, String teamName, List<TeamMemberDto> members) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.members = members;
+    }
+}
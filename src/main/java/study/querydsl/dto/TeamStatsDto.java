@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TeamStatsDto {
+
+    private Long teamId;
+    private String teamName;
+
+    private long memberCount;
+    private double ageAvg;
+    private Integer minAge;
+    private Integer maxAge;
+
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, double ageAvg, Integer minAge, Integer maxAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageAvg = ageAvg;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+}
@@ -1,6 +1,7 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import study.querydsl.repository.cache.MemberEntityListener;
 
 import javax.persistence.*;
 
@@ -8,9 +9,13 @@ import javax.persistence.*;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@Table(indexes = @Index(name = "idx_member_age_id", columnList = "age, member_id")) // keyset 페이징(age 정렬)용
+@EntityListeners(MemberEntityListener.class)
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 50) // pooled-lo, BulkDataLoader 와 같은 블록 단위
     @Column(name = "member_id")
     private Long id;
     private String username;
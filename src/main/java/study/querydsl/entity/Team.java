@@ -1,11 +1,18 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import study.querydsl.repository.cache.MemberEntityListener;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,14 +20,23 @@ import java.util.List;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+@EntityListeners(MemberEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Team.CACHE_REGION)
 public class Team {
 
-    @Id @GeneratedValue
+    public static final String CACHE_REGION = "team";
+    public static final String MEMBERS_CACHE_REGION = "team.members";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+    @SequenceGenerator(name = "team_seq", sequenceName = "team_seq", allocationSize = 50)
     private Long id;
 
     private String name;
 
     @OneToMany(mappedBy = "team")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Team.MEMBERS_CACHE_REGION)
     private List<Member> members = new ArrayList<>();
 
     public Team(String name) {
@@ -2,5 +2,5 @@ package study.querydsl.entity;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
 }
\ No newline at end of file
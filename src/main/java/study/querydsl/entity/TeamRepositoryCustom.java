@@ -0,0 +1,13 @@
+package study.querydsl.entity;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.TeamMembersDto;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TeamRepositoryCustom {
+    List<Team> findTeamsByNames(Collection<String> names);
+    Page<TeamMembersDto> searchTeamsWithMembers(String teamName, Pageable pageable);
+}
@@ -0,0 +1,96 @@
+package study.querydsl.entity;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.QTeamMemberDto;
+import study.querydsl.dto.TeamMemberDto;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.repository.support.BatchedLookups;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.querydsl.core.group.GroupBy.groupBy;
+import static com.querydsl.core.group.GroupBy.list;
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Transactional(readOnly = true)
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+    private final JPAQueryFactory queryFactory;
+
+    public TeamRepositoryImpl(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    /**
+     * 이름 별로 입력 순서대로 (같은 이름은 id 순)
+     */
+    @Override
+    public List<Team> findTeamsByNames(Collection<String> names) {
+        return BatchedLookups.fetchInOrder(names,
+                batch -> queryFactory
+                        .selectFrom(team)
+                        .where(team.name.in(batch))
+                        .orderBy(team.id.asc())
+                        .fetch(),
+                Team::getName);
+    }
+
+    /**
+     * 팀 이름 순으로 팀만 페이징하고, 그 페이지 팀들의 회원은 IN 한 번으로 읽는다.
+     * team.members 를 fetch join 하면 Hibernate 가 전체를 읽어서 메모리에서 페이징하므로 (HHH000104) 쓰지 않는다.
+     * 팀 1번 + 회원 1번 (+ 필요할 때만 count), 회원이 없는 팀은 members 가 비어 있다.
+     * pageable 의 sort 는 쓰지 않는다.
+     */
+    @Override
+    public Page<TeamMembersDto> searchTeamsWithMembers(String teamName, Pageable pageable) {
+        List<Tuple> teams = queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .where(teamNameCond(teamName))
+                .orderBy(team.name.asc(), team.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        List<Long> teamIds = new ArrayList<>(teams.size());
+        for (Tuple row : teams) {
+            teamIds.add(row.get(team.id));
+        }
+        Map<Long, List<TeamMemberDto>> membersByTeamId = teamIds.isEmpty()
+                ? Collections.emptyMap()
+                : queryFactory
+                        .from(member)
+                        .where(member.team.id.in(teamIds))
+                        .orderBy(member.id.asc())
+                        .transform(groupBy(member.team.id).as(list(new QTeamMemberDto(member.id, member.username, member.age))));
+
+        List<TeamMembersDto> content = new ArrayList<>(teams.size());
+        for (Tuple row : teams) {
+            Long teamId = row.get(team.id);
+            content.add(new TeamMembersDto(teamId, row.get(team.name),
+                    membersByTeamId.getOrDefault(teamId, new ArrayList<>())));
+        }
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> queryFactory
+                .select(team.count())
+                .from(team)
+                .where(teamNameCond(teamName))
+                .fetchOne());
+    }
+
+    private BooleanExpression teamNameCond(String teamName) {
+        return hasText(teamName) ? team.name.contains(teamName) : null;
+    }
+}
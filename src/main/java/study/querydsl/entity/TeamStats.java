@@ -0,0 +1,36 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 팀별 회원 수 / 나이 합계 / 최소 / 최대 (team_stats)
+ * TeamStatsMaintainer 가 SQL 로 갱신하므로 JPA 로는 읽기만 한다.
+ */
+@Entity
+@Immutable
+@Table(name = "team_stats")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    private long memberCount;
+    private long ageSum;
+
+    // 회원이 없으면 null
+    private Integer minAge;
+    private Integer maxAge;
+}
@@ -5,39 +5,60 @@ import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.MemberSearchResultCache;
+import study.querydsl.repository.cache.TeamNameIndex;
+import study.querydsl.repository.support.MemberSearchTemplates;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.swing.text.html.Option;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchResultCache resultCache;
+    private final TeamNameIndex teamNameIndex;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, MemberSearchResultCache resultCache, TeamNameIndex teamNameIndex) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.resultCache = resultCache;
+        this.teamNameIndex = teamNameIndex;
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
@@ -86,7 +107,7 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        Supplier<List<MemberTeamDto>> query = () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -94,11 +115,19 @@ public class MemberJpaRepository {
                         team.id.as("teamId"),
                         team.name.as("teamName")))
                 .from(member)
-                .leftJoin(member.team, team)
+                .leftJoin(member.team, team) // left join 이므로 팀 없는 회원도 포함된다
                 .where(builder)
                 .fetch();
+
+        // 정규화(trim)된 키는 캐시에만 쓴다, 앞뒤 공백이 있는 조건은 키와 결과가 달라지므로 캐시를 거치지 않는다
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.LEFT);
+        return key.matchesAsIs(condition) ? resultCache.get(key, query) : query.get();
     }
 
+    /**
+     * Querydsl where 조건(null 이면 무시)으로 만든 기준 구현, 요청 경로(MemberController)에서는 쓰지 않는다.
+     * MemberSearchTemplates 를 거치지 않는 독립 구현이라 템플릿 / 캐시 / keyset 결과를 비교하는 테스트 기준으로 남겨 둔다.
+     */
     public List<MemberTeamDto> searchNotNullEx(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
@@ -118,22 +147,54 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> searchNullEx(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .join(member.team, team)
-                .where(
-                        memberCond(condition.getUsername(),
-                                condition.getTeamName(),
-                                condition.getAgeGoe(),
-                                condition.getAgeLoe()))
-                .fetch();
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+
+        // 조건 모양별로 미리 만든 JPQL 에 파라미터만 바인딩한다 (memberCond 와 같은 의미)
+        return resultCache.get(key, () -> {
+            Set<Long> teamIds = teamNameIndex.findTeamIds(key);
+            if (teamIds != null && teamIds.isEmpty()) {
+                return Collections.emptyList(); // 이름이 맞는 팀이 없으면 조회하지 않는다
+            }
+            return MemberSearchTemplates.createQuery(em, key, teamIds).getResultList();
+        });
+    }
+
+    /**
+     * searchNullEx 와 같은 조건을 forward-only 커서로 한 건씩 흘려보낸다.
+     * 결과를 List 로 모으지 않으므로 결과 크기와 상관없이 메모리 사용량이 일정하다.
+     * 커서는 트랜잭션 안에서만 열려 있으므로 action 안에서 바로 소비해야 한다.
+     */
+    @Transactional(readOnly = true)
+    public long streamNullEx(MemberSearchCondition condition, Consumer<MemberTeamDto> action) {
+        long count = 0;
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        Set<Long> teamIds = teamNameIndex.findTeamIds(key);
+        if (teamIds != null && teamIds.isEmpty()) {
+            return 0;
+        }
+        try (Stream<MemberTeamDto> stream = MemberSearchTemplates.createQuery(em, key, teamIds)
+                .setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream()) {
+
+            // DTO 프로젝션이라 영속성 컨텍스트에 쌓이는 엔티티가 없다 (em.clear 는 호출한 쪽의 엔티티까지 detach 한다)
+            Iterator<MemberTeamDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * searchNullEx 와 같은 결과를 row 객체 없이 컬럼 배열로 모은다 (대량 조회용)
+     */
+    @Transactional(readOnly = true)
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+        streamNullEx(condition, builder::add);
+        return builder.build();
     }
 
     public BooleanExpression usernameCond(String username) {
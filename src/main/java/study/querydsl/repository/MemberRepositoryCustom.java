@@ -2,13 +2,25 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchComplexConcurrent(MemberSearchCondition condition, Pageable pageable);
+    EstimatedPage<MemberTeamDto> searchEstimated(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size);
+    List<Member> findByUsernames(Collection<String> usernames);
+    List<Member> findByIds(Collection<Long> ids);
 }
@@ -1,153 +1,220 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.core.types.dsl.Expressions;
-import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.MemberSearchResultCache;
+import study.querydsl.repository.cache.TeamNameIndex;
+import study.querydsl.repository.support.BatchedLookups;
+import study.querydsl.repository.support.MemberCountEstimator;
+import study.querydsl.repository.support.MemberSearchTemplates;
+import study.querydsl.repository.support.PageCountExecutor;
 
 import javax.persistence.EntityManager;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
-import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
-import static study.querydsl.entity.QTeam.team;
 
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberRepositoryImpl(EntityManager em) {
+    private final PageCountExecutor pageCountExecutor;
+    private final MemberCountCache memberCountCache;
+    private final MemberSearchResultCache resultCache;
+    private final MemberCountEstimator memberCountEstimator;
+    private final TeamNameIndex teamNameIndex;
+
+    public MemberRepositoryImpl(EntityManager em,
+                                PageCountExecutor pageCountExecutor,
+                                MemberCountCache memberCountCache,
+                                MemberSearchResultCache resultCache,
+                                MemberCountEstimator memberCountEstimator,
+                                TeamNameIndex teamNameIndex) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.pageCountExecutor = pageCountExecutor;
+        this.memberCountCache = memberCountCache;
+        this.resultCache = resultCache;
+        this.memberCountEstimator = memberCountEstimator;
+        this.teamNameIndex = teamNameIndex;
     }
 
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .join(member.team, team)
-                .where(memberCond(condition.getUsername(),
-                        condition.getTeamName(),
-                        condition.getAgeGoe(),
-                        condition.getAgeLoe()))
-                .fetch();
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        return resultCache.get(key, () -> {
+            Set<Long> teamIds = teamNameIndex.findTeamIds(key);
+            if (teamIds != null && teamIds.isEmpty()) {
+                return Collections.emptyList(); // 이름이 맞는 팀이 없으면 조회하지 않는다
+            }
+            return MemberSearchTemplates.createQuery(em, key, teamIds).getResultList();
+        });
     }
 
+    /**
+     * content 와 count 를 항상 둘 다 실행한다 (count 도 inner join)
+     */
     @Override
     public Page<MemberTeamDto> searchSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .join(member.team, team)
-                .where(memberCond(condition.getUsername(),
-                        condition.getTeamName(),
-                        condition.getAgeGoe(),
-                        condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+
+        List<MemberTeamDto> content = fetchContent(key, pageable.getOffset(), pageable.getPageSize());
+        long total = fetchCount(key);
         return new PageImpl<>(content, pageable, total);
     }
 
     @Override
     public Page<MemberTeamDto> searchComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> contents = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .join(member.team, team)
-                .where(memberCond(condition.getUsername(),
-                        condition.getTeamName(),
-                        condition.getAgeGoe(),
-                        condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(memberCond(condition.getUsername(),
-                        condition.getTeamName(),
-                        condition.getAgeGoe(),
-                        condition.getAgeLoe())
-                );
+        // count 는 left join 이므로 키도 LEFT, 쿼리는 정규화된 조건으로 실행
+        MemberSearchKey countKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.LEFT);
+        MemberSearchKey contentKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+
+        List<MemberTeamDto> contents = fetchContent(contentKey, pageable.getOffset(), pageable.getPageSize());
 
 //        return new PageImpl<>(contents, pageable, total);
-        return PageableExecutionUtils.getPage(contents, pageable, () -> countQuery.fetchCount());
+        return PageableExecutionUtils.getPage(contents, pageable, () -> memberCountCache.get(countKey, () -> fetchCount(countKey)));
     }
 
-    public BooleanExpression usernameCond(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    /**
+     * searchComplex 와 같은 쿼리지만 count 를 content 와 동시에 실행한다.
+     */
+    @Override
+    public Page<MemberTeamDto> searchComplexConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchKey countKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.LEFT);
+        MemberSearchKey contentKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+
+        return pageCountExecutor.getPage(
+                () -> fetchContent(contentKey, pageable.getOffset(), pageable.getPageSize()),
+                pageable,
+                () -> memberCountCache.get(countKey, () -> fetchCount(countKey)));
     }
 
-    public BooleanExpression teamNameCond(String teamName) {
-        return hasText(teamName) ? team.name.contains(teamName) : null;
-    }
+    /**
+     * count 쿼리 대신 표본으로 추정한 전체 건수를 돌려준다.
+     * pageSize + 1 건을 읽어서 마지막 페이지인지 알 수 있으면 그때는 정확한 건수가 된다.
+     */
+    @Override
+    public EstimatedPage<MemberTeamDto> searchEstimated(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchKey contentKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
 
-    public BooleanExpression ageGoeCond(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+        List<MemberTeamDto> rows = fetchContent(contentKey, pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        if (!hasNext && (!rows.isEmpty() || pageable.getOffset() == 0)) {
+            return EstimatedPage.exact(rows, pageable, pageable.getOffset() + rows.size());
+        }
+
+        List<MemberTeamDto> contents = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        MemberCountEstimator.CountEstimate estimate = memberCountEstimator.estimate(contentKey);
+        long minimum = pageable.getOffset() + contents.size() + (hasNext ? 1 : 0);
+        return new EstimatedPage<>(contents, pageable, Math.max(estimate.getTotal(), minimum),
+                estimate.isExact(), estimate.getErrorBound());
     }
 
-    public BooleanExpression ageLoeCond(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    /**
+     * 전체 건수가 필요 없는 무한 스크롤용
+     * count 쿼리 없이 pageSize + 1 건을 읽어서 다음 페이지 존재 여부만 판단한다.
+     */
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchKey contentKey = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+
+        List<MemberTeamDto> rows = fetchContent(contentKey, pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<MemberTeamDto> contents = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        return new SliceImpl<>(contents, pageable, hasNext);
     }
 
-    public BooleanExpression memberCond(String username, String teamName, Integer ageGoe, Integer ageLoe) {
-        BooleanExpression usernameCond = usernameCond(username);
-        BooleanExpression teamNameCond = teamNameCond(teamName);
-        BooleanExpression ageGoeCond = ageGoeCond(ageGoe);
-        BooleanExpression ageLoeCond = ageLoeCond(ageLoe);
+    private List<MemberTeamDto> fetchContent(MemberSearchKey contentKey, long offset, int limit) {
+        return resultCache.get(contentKey, offset, limit, () -> {
+            Set<Long> teamIds = teamNameIndex.findTeamIds(contentKey);
+            if (teamIds != null && teamIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return MemberSearchTemplates.createQuery(em, contentKey, teamIds)
+                    .setFirstResult(Math.toIntExact(offset))
+                    .setMaxResults(limit)
+                    .getResultList();
+        });
+    }
 
-        List<BooleanExpression> expressions = new ArrayList<>();
-        if (usernameCond != null) {
-            expressions.add(usernameCond);
+    private long fetchCount(MemberSearchKey countKey) {
+        Set<Long> teamIds = teamNameIndex.findTeamIds(countKey);
+        if (teamIds != null && teamIds.isEmpty()) {
+            return 0;
         }
-        if (teamNameCond != null) {
-            expressions.add(teamNameCond);
-        }
-        if (ageGoeCond != null) {
-            expressions.add(ageGoeCond);
+        return MemberSearchTemplates.createCountQuery(em, countKey, teamIds).getSingleResult();
+    }
+
+    /**
+     * keyset 페이징
+     * offset 대신 마지막 커서 이후의 row 만 조회하므로 페이지 깊이와 상관없이 인덱스 범위 탐색으로 끝난다.
+     * size + 1 건을 가져와서 다음 페이지 존재 여부를 판단한다.
+     */
+    @Override
+    public CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        Set<Long> teamIds = teamNameIndex.findTeamIds(key);
+        if (teamIds != null && teamIds.isEmpty()) {
+            return new CursorPage<>(Collections.emptyList(), size, null);
         }
-        if (ageLoeCond != null) {
-            expressions.add(ageLoeCond);
+        List<MemberTeamDto> content = MemberSearchTemplates.createCursorQuery(em, key, teamIds, cursor)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        if (content.size() <= size) {
+            return new CursorPage<>(content, size, null);
         }
 
-        return Expressions.allOf(expressions.toArray(new BooleanExpression[0]));
+        List<MemberTeamDto> page = content.subList(0, size);
+        String nextCursor = MemberCursor.after(cursor.getSortKey(), page.get(size - 1)).encode();
+        return new CursorPage<>(page, size, nextCursor);
+    }
+
+    /**
+     * username 별로 입력 순서대로 (같은 username 은 id 순)
+     */
+    @Override
+    public List<Member> findByUsernames(Collection<String> usernames) {
+        return BatchedLookups.fetchInOrder(usernames,
+                batch -> queryFactory
+                        .selectFrom(member)
+                        .where(member.username.in(batch))
+                        .orderBy(member.id.asc())
+                        .fetch(),
+                Member::getUsername);
+    }
+
+    /**
+     * 입력 순서대로, 없는 id 는 빠진다
+     */
+    @Override
+    public List<Member> findByIds(Collection<Long> ids) {
+        return BatchedLookups.fetchInOrder(ids,
+                batch -> queryFactory
+                        .selectFrom(member)
+                        .where(member.id.in(batch))
+                        .fetch(),
+                Member::getId);
     }
 
 }
@@ -4,10 +4,14 @@ import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.BulkMutationOptions;
+import study.querydsl.repository.support.BulkMutationProgress;
 import study.querydsl.repository.support.QueryDslSupportRepository;
 
 import java.util.List;
@@ -21,6 +25,7 @@ import static study.querydsl.entity.QTeam.team;
  */
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberTestRepository extends QueryDslSupportRepository {
     public MemberTestRepository() {
         super(Member.class);
@@ -87,11 +92,76 @@ public class MemberTestRepository extends QueryDslSupportRepository {
         );
     }
 
+    /**
+     * applyPagination 과 같은 결과를 id 페이지 조회 + id IN 조회 2단계로
+     */
+    public Page<Member> applyIdPagination(MemberSearchCondition condition, Pageable pageable) {
+        return applyIdPagination(pageable, query ->
+                query.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+        );
+    }
+
+    public Slice<Member> applySlicePagination(MemberSearchCondition condition, Pageable pageable) {
+        return applySlicePagination(pageable, query ->
+                query.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+        );
+    }
+
+    public Page<Member> applyPaginationConcurrently(MemberSearchCondition condition, Pageable pageable) {
+        return applyPaginationConcurrently(
+                pageable,
+
+                contentQuery -> contentQuery
+                        .selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        ),
+
+                countQuery -> countQuery
+                        .select(member.id)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+        );
+    }
+
+    /**
+     * ageGoe 살 이상인 회원의 나이를 amount 만큼 올린다 (chunk 단위 커밋)
+     */
+    public BulkMutationProgress bulkAddAge(int ageGoe, int amount, BulkMutationOptions options) {
+        return bulkUpdate(member.age.goe(ageGoe),
+                update -> update.set(member.age, member.age.add(amount)),
+                options);
+    }
+
+    /**
+     * ageGoe 살 이상인 회원을 지운다 (chunk 단위 커밋)
+     */
+    public BulkMutationProgress bulkDeleteByAgeGoe(int ageGoe, BulkMutationOptions options) {
+        return bulkDelete(member.age.goe(ageGoe), options);
+    }
+
     private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? null : member.username.eq(username);
+        return hasText(username) ? member.username.eq(username) : null;
     }
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? null : team.name.eq(teamName);
+        return hasText(teamName) ? team.name.eq(teamName) : null;
     }
     private BooleanExpression ageGoe(Integer ageGoe) {
         return ageGoe == null ? null : member.age.goe(ageGoe);
@@ -0,0 +1,106 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.TeamStats;
+import study.querydsl.repository.stats.TeamStatsMaintainer;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * 팀 단위 집계 (회원 수, 평균 / 최소 / 최대 나이)
+ * member 를 group by 하지 않고 team_stats 에서 팀 수만큼만 읽는다.
+ * team_stats 가 stale 이면 (bulk 연산 직후 rebuild 전) member 를 직접 집계한다.
+ * 회원이 있는 팀만, 팀 이름 순서로 돌려준다 (member join team group by 와 같다).
+ */
+@Repository
+@Transactional(readOnly = true)
+public class TeamStatsRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatsMaintainer teamStatsMaintainer;
+
+    public TeamStatsRepository(EntityManager em, TeamStatsMaintainer teamStatsMaintainer) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.teamStatsMaintainer = teamStatsMaintainer;
+    }
+
+    public List<TeamStatsDto> findAll() {
+        return find(null, null);
+    }
+
+    /**
+     * 평균 나이가 age 보다 많은 팀 (avg > age 를 age_sum > member_count * age 로 비교)
+     */
+    public List<TeamStatsDto> findByAgeAvgGt(int age) {
+        return find(teamStats.ageSum.gt(teamStats.memberCount.multiply(age)),
+                member.age.avg().gt(age));
+    }
+
+    /**
+     * 평균 나이가 age 보다 적은 팀
+     */
+    public List<TeamStatsDto> findByAgeAvgLt(int age) {
+        return find(teamStats.ageSum.lt(teamStats.memberCount.multiply(age)),
+                member.age.avg().lt(age));
+    }
+
+    private List<TeamStatsDto> find(Predicate statsCond, Predicate memberHaving) {
+        if (teamStatsMaintainer.isStale()) {
+            teamStatsMaintainer.requestRebuild();
+            return aggregateMembers(memberHaving);
+        }
+
+        List<Tuple> rows = queryFactory
+                .select(teamStats, team.name)
+                .from(teamStats)
+                .join(team).on(team.id.eq(teamStats.teamId))
+                .where(teamStats.memberCount.gt(0), statsCond)
+                .orderBy(team.name.asc(), team.id.asc())
+                .fetch();
+
+        List<TeamStatsDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            TeamStats stats = row.get(teamStats);
+            result.add(new TeamStatsDto(stats.getTeamId(),
+                    row.get(team.name),
+                    stats.getMemberCount(),
+                    (double) stats.getAgeSum() / stats.getMemberCount(),
+                    stats.getMinAge(),
+                    stats.getMaxAge()));
+        }
+        return result;
+    }
+
+    private List<TeamStatsDto> aggregateMembers(Predicate having) {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name, member.count(), member.age.avg(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.id, team.name)
+                .having(having)
+                .orderBy(team.name.asc(), team.id.asc())
+                .fetch();
+
+        List<TeamStatsDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new TeamStatsDto(row.get(team.id),
+                    row.get(team.name),
+                    row.get(member.count()),
+                    row.get(member.age.avg()),
+                    row.get(member.age.min()),
+                    row.get(member.age.max())));
+        }
+        return result;
+    }
+}
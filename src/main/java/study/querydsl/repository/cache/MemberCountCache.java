@@ -0,0 +1,135 @@
+package study.querydsl.repository.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 전체 건수(count) 캐시
+ * 크기 제한, TTL 이 있고, 없는 키는 lock striping 으로 한 호출자만 계산한다.
+ * member / team 변경이 커밋되면 전부 무효화된다.
+ * querydsl.count-cache.enabled=false 이면 항상 count 쿼리를 실행한다 (벤치마크 등).
+ */
+@Component
+public class MemberCountCache implements MemberWriteListener {
+
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+    private static final int STRIPES = 64; // 2의 제곱수
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<MemberSearchKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public MemberCountCache(@Value("${querydsl.count-cache.enabled:true}") boolean enabled) {
+        this(enabled, DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    public MemberCountCache(int maxSize, Duration ttl) {
+        this(true, maxSize, ttl);
+    }
+
+    private MemberCountCache(boolean enabled, int maxSize, Duration ttl) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public long get(MemberSearchKey key, LongSupplier countQuery) {
+        if (!enabled) {
+            return countQuery.getAsLong();
+        }
+        // 쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 보여야 하므로 캐시를 쓰지 않는다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return countQuery.getAsLong();
+        }
+
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(System.nanoTime())) {
+            return entry.count;
+        }
+
+        synchronized (locks[spread(key.hashCode()) & (STRIPES - 1)]) {
+            entry = entries.get(key);
+            if (entry != null && !entry.isExpired(System.nanoTime())) {
+                return entry.count;
+            }
+
+            long startGeneration = generation.get();
+            long count = countQuery.getAsLong();
+            // 계산하는 동안 무효화가 있었다면 오래된 값일 수 있으므로 저장하지 않는다
+            if (startGeneration == generation.get()) {
+                put(key, new Entry(count, System.nanoTime() + ttlNanos));
+            }
+            return count;
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void onMemberWrite() {
+        invalidateAll();
+    }
+
+    private void put(MemberSearchKey key, Entry entry) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, entry);
+    }
+
+    /**
+     * 만료된 항목을 먼저 지우고, 그래도 가득 차 있으면 90% 까지 줄인다.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        Iterator<MemberSearchKey> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxSize * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
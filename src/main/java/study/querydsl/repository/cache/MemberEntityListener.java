@@ -0,0 +1,73 @@
+package study.querydsl.repository.cache;
+
+import org.hibernate.Hibernate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Member / Team 엔티티 변경의 영향 범위(팀 이름)를 MemberWriteTracker 에 알려준다.
+ * 변경 전 값을 알 수 없는 update 는 범위를 좁히지 않는다.
+ */
+public class MemberEntityListener {
+
+    private final MemberWriteTracker memberWriteTracker;
+
+    public MemberEntityListener(MemberWriteTracker memberWriteTracker) {
+        this.memberWriteTracker = memberWriteTracker;
+    }
+
+    @PostPersist
+    public void afterInsert(Object entity) {
+        afterInsertOrDelete(entity);
+        if (entity instanceof Team) {
+            memberWriteTracker.onTeamEntityWrite(((Team) entity).getId(), ((Team) entity).getName());
+        } else if (entity instanceof Member) {
+            memberWriteTracker.onMemberEntityWrite(((Member) entity).getId());
+        }
+    }
+
+    @PostRemove
+    public void afterDelete(Object entity) {
+        afterInsertOrDelete(entity);
+        if (entity instanceof Team) {
+            memberWriteTracker.onTeamEntityWrite(((Team) entity).getId(), null);
+        } else if (entity instanceof Member) {
+            memberWriteTracker.onMemberEntityWrite(((Member) entity).getId());
+        }
+    }
+
+    @PostUpdate
+    public void afterUpdate(Object entity) {
+        memberWriteTracker.onEntityWrite(null);
+        if (entity instanceof Team) {
+            memberWriteTracker.onTeamEntityWrite(((Team) entity).getId(), ((Team) entity).getName());
+        } else if (entity instanceof Member) {
+            memberWriteTracker.onMemberEntityWrite(((Member) entity).getId());
+        }
+    }
+
+    private void afterInsertOrDelete(Object entity) {
+        if (entity instanceof Member) {
+            memberWriteTracker.onEntityWrite(teamNameOf(((Member) entity).getTeam()));
+        } else if (entity instanceof Team) {
+            // 새 팀은 아직 회원이 없고, 삭제되는 팀은 자기 이름으로 조회된 결과에만 영향이 있다
+            memberWriteTracker.onEntityWrite(Collections.singleton(((Team) entity).getName()));
+        }
+    }
+
+    private Set<String> teamNameOf(Team team) {
+        if (team == null) {
+            return Collections.singleton(null);
+        }
+        if (!Hibernate.isInitialized(team)) {
+            return null; // flush 중에 프록시를 초기화하지 않는다
+        }
+        return Collections.singleton(team.getName());
+    }
+}
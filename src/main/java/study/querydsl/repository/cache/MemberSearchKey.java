@@ -0,0 +1,78 @@
+package study.querydsl.repository.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 캐시 키로 쓰는 MemberSearchCondition 의 정규화된 형태
+ * 문자열 조건은 trim 후 빈 문자열이면 null, 나이 범위는 없으면 null (= 제한 없음)
+ * 같은 조건이라도 join 모양(inner / left)이 다르면 결과가 다르므로 키에 포함한다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MemberSearchKey {
+
+    public enum JoinShape {
+        INNER, LEFT
+    }
+
+    private final String username;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+    private final JoinShape joinShape;
+
+    private MemberSearchKey(String username, String teamName, Integer ageGoe, Integer ageLoe, JoinShape joinShape) {
+        this.username = username;
+        this.teamName = teamName;
+        this.ageGoe = ageGoe;
+        this.ageLoe = ageLoe;
+        this.joinShape = joinShape;
+    }
+
+    public static MemberSearchKey of(MemberSearchCondition condition, JoinShape joinShape) {
+        return new MemberSearchKey(
+                normalize(condition.getUsername()),
+                normalize(condition.getTeamName()),
+                condition.getAgeGoe(),
+                condition.getAgeLoe(),
+                joinShape);
+    }
+
+    /**
+     * 정규화된 값으로 다시 만든 검색 조건
+     * 쿼리도 이 조건으로 실행해야 키와 결과가 어긋나지 않는다.
+     */
+    public MemberSearchCondition toCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
+    /**
+     * condition 을 정규화하지 않고 그대로 쿼리에 써도 이 키와 같은 결과인지
+     * (문자열 조건에 앞뒤 공백이 없는지, 공백뿐인 값은 hasText 기준으로 조건 없음과 같다)
+     */
+    public boolean matchesAsIs(MemberSearchCondition condition) {
+        return sameAsIs(username, condition.getUsername()) && sameAsIs(teamName, condition.getTeamName());
+    }
+
+    private static boolean sameAsIs(String normalized, String value) {
+        return normalized == null ? !StringUtils.hasText(value) : normalized.equals(value);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
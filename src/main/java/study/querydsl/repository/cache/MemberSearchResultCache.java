@@ -0,0 +1,117 @@
+package study.querydsl.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 검색 결과(List<MemberTeamDto>) read-through 캐시 (querydsl.search-cache.enabled=true 일 때만 동작)
+ * Caffeine(W-TinyLFU)으로 결과 row 수 기준 가중치 제한, TTL, hit/miss/eviction 통계를 가진다.
+ * 캐시된 목록과 DTO 는 여러 호출자가 공유하므로 수정하면 안 된다.
+ */
+@Component
+public class MemberSearchResultCache implements MemberWriteListener {
+
+    private static final long UNPAGED = -1;
+
+    private final boolean enabled;
+    private final Cache<ResultKey, List<MemberTeamDto>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberSearchResultCache(@Value("${querydsl.search-cache.enabled:false}") boolean enabled,
+                                   @Value("${querydsl.search-cache.max-rows:1000000}") long maxRows,
+                                   @Value("${querydsl.search-cache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((ResultKey key, List<MemberTeamDto> value) -> value.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public List<MemberTeamDto> get(MemberSearchKey key, Supplier<List<MemberTeamDto>> loader) {
+        return get(new ResultKey(key, UNPAGED, 0), loader);
+    }
+
+    public List<MemberTeamDto> get(MemberSearchKey key, long offset, int limit, Supplier<List<MemberTeamDto>> loader) {
+        return get(new ResultKey(key, offset, limit), loader);
+    }
+
+    private List<MemberTeamDto> get(ResultKey key, Supplier<List<MemberTeamDto>> loader) {
+        // 쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 보여야 하므로 캐시를 쓰지 않는다
+        if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return loader.get();
+        }
+
+        long startGeneration = generation.get();
+        List<MemberTeamDto> result = cache.get(key, k -> Collections.unmodifiableList(new ArrayList<>(loader.get())));
+        // 읽는 동안 무효화가 있었다면 오래된 값일 수 있으므로 버린다
+        if (startGeneration != generation.get()) {
+            cache.invalidate(key);
+        }
+        return result;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void onMemberWrite() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 팀 이름 조건이 없거나, 변경된 팀 이름이 조건(contains)에 걸리는 결과만 지운다.
+     */
+    @Override
+    public void onTeamWrite(Set<String> teamNames) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> isAffected(key.searchKey, teamNames));
+    }
+
+    static boolean isAffected(MemberSearchKey key, Set<String> teamNames) {
+        if (key.getTeamName() == null) {
+            return true;
+        }
+        for (String teamName : teamNames) {
+            if (teamName != null && teamName.contains(key.getTeamName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @EqualsAndHashCode
+    private static class ResultKey {
+        private final MemberSearchKey searchKey;
+        private final long offset;
+        private final int limit;
+
+        ResultKey(MemberSearchKey searchKey, long offset, int limit) {
+            this.searchKey = searchKey;
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+}
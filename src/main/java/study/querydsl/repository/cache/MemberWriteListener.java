@@ -0,0 +1,42 @@
+package study.querydsl.repository.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * member / team 테이블 변경이 커밋된 뒤 호출된다.
+ */
+public interface MemberWriteListener {
+
+    /**
+     * 범위를 알 수 없는 변경 (bulk 연산 등) - 전체 무효화
+     */
+    void onMemberWrite();
+
+    /**
+     * 엔티티 단위 변경으로 영향 범위가 팀 이름으로 좁혀지는 경우 (null 원소 = 팀 없는 회원)
+     */
+    default void onTeamWrite(Set<String> teamNames) {
+        onMemberWrite();
+    }
+
+    /**
+     * 엔티티 단위로 insert / update / delete 된 팀 (id -> 커밋된 이름, 삭제되면 null)
+     * onMemberWrite / onTeamWrite 보다 먼저 호출된다.
+     */
+    default void onTeamChange(Map<Long, String> teamNamesById) {
+    }
+
+    /**
+     * 엔티티 단위로 insert / update / delete 된 회원 id
+     * onTeamChange 다음, onMemberWrite / onTeamWrite 보다 먼저 호출된다.
+     */
+    default void onMemberChange(Set<Long> memberIds) {
+    }
+
+    /**
+     * 엔티티 변경으로 설명되지 않는 쓰기 (HQL bulk 연산, JDBC 직접 쓰기) - onMemberWrite 다음에 호출된다.
+     */
+    default void onBulkMemberWrite() {
+    }
+}
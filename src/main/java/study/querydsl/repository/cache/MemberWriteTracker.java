@@ -0,0 +1,181 @@
+package study.querydsl.repository.cache;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 보고 member / team 테이블에 대한 insert, update, delete 를 감지한다.
+ * em.persist, Spring Data save, Querydsl bulk update/delete 모두 여기를 지나간다.
+ * 트랜잭션 안이면 커밋 후에, 밖이면 바로 MemberWriteListener 들에게 알린다.
+ *
+ * 엔티티 단위 변경은 MemberEntityListener 가 영향을 받는 팀 이름을 같이 알려준다.
+ * 트랜잭션 안의 쓰기 SQL 이 모두 엔티티 변경으로 설명되면 팀 단위로, 아니면(bulk 연산) 전체 무효화한다.
+ * (JDBC batch 를 켜면 SQL 수가 엔티티 수보다 적게 잡히므로 bulk 연산과 섞인 경우를 놓칠 수 있다)
+ */
+@Component
+public class MemberWriteTracker implements StatementInspector {
+
+    private static final String[] WRITE_PREFIXES = {"insert into ", "update ", "delete from "};
+    private static final String[] TABLES = {"member", "team"};
+
+    private final ObjectProvider<MemberWriteListener> listeners;
+
+    public MemberWriteTracker(ObjectProvider<MemberWriteListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (isMemberTableWrite(sql)) {
+            PendingWrites pending = pendingWrites();
+            if (pending == null) {
+                publish(null, true);
+            } else {
+                pending.statements++;
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * 엔티티 한 건의 변경
+     * @param affectedTeamNames 영향을 받는 팀 이름 (null 원소 = 팀 없는 회원), null 이면 범위를 알 수 없음
+     */
+    public void onEntityWrite(Set<String> affectedTeamNames) {
+        PendingWrites pending = pendingWrites();
+        if (pending == null) {
+            return; // 트랜잭션 밖의 SQL 은 inspect 에서 이미 전체 무효화됨
+        }
+        pending.entities++;
+        if (affectedTeamNames == null) {
+            pending.global = true;
+        } else {
+            pending.teamNames.addAll(affectedTeamNames);
+        }
+    }
+
+    /**
+     * 팀 엔티티 한 건의 insert / update / delete (name == null 이면 삭제)
+     */
+    public void onTeamEntityWrite(Long teamId, String name) {
+        PendingWrites pending = pendingWrites();
+        if (pending != null) {
+            pending.teams.put(teamId, name);
+        }
+    }
+
+    /**
+     * 회원 엔티티 한 건의 insert / update / delete
+     */
+    public void onMemberEntityWrite(Long memberId) {
+        PendingWrites pending = pendingWrites();
+        if (pending != null) {
+            pending.members.add(memberId);
+        }
+    }
+
+    /**
+     * JDBC 로 직접 쓴 경우처럼 Hibernate 를 거치지 않는 변경은 직접 호출해야 한다.
+     */
+    public void onBulkWrite() {
+        PendingWrites pending = pendingWrites();
+        if (pending == null) {
+            publish(null, true);
+        } else {
+            pending.bulk = true;
+        }
+    }
+
+    private PendingWrites pendingWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingWrites) {
+                return (PendingWrites) synchronization;
+            }
+        }
+        PendingWrites pending = new PendingWrites();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private void publish(Set<String> teamNames, boolean bulk) {
+        if (teamNames == null) {
+            listeners.orderedStream().forEach(MemberWriteListener::onMemberWrite);
+        } else {
+            listeners.orderedStream().forEach(listener -> listener.onTeamWrite(teamNames));
+        }
+        if (bulk) {
+            listeners.orderedStream().forEach(MemberWriteListener::onBulkMemberWrite);
+        }
+    }
+
+    static boolean isMemberTableWrite(String sql) {
+        int start = skipWhitespace(sql, 0);
+        for (String prefix : WRITE_PREFIXES) {
+            if (sql.regionMatches(true, start, prefix, 0, prefix.length())) {
+                int tableStart = skipWhitespace(sql, start + prefix.length());
+                int tableEnd = tableStart;
+                while (tableEnd < sql.length()
+                        && !Character.isWhitespace(sql.charAt(tableEnd))
+                        && sql.charAt(tableEnd) != '(') {
+                    tableEnd++;
+                }
+                for (String table : TABLES) {
+                    if (tableEnd - tableStart == table.length()
+                            && sql.regionMatches(true, tableStart, table, 0, table.length())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static int skipWhitespace(String sql, int index) {
+        while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 트랜잭션 하나 동안 모은 쓰기 정보, 커밋 후에 한 번에 알린다.
+     */
+    private class PendingWrites implements TransactionSynchronization {
+        private int statements;
+        private int entities;
+        private boolean global;
+        private boolean bulk;
+        private final Set<String> teamNames = new HashSet<>();
+        private final Map<Long, String> teams = new LinkedHashMap<>();
+        private final Set<Long> members = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            if (!teams.isEmpty()) {
+                listeners.orderedStream().forEach(listener -> listener.onTeamChange(teams));
+            }
+            if (!members.isEmpty()) {
+                listeners.orderedStream().forEach(listener -> listener.onMemberChange(members));
+            }
+            boolean unexplained = bulk || statements > entities;
+            if (global || unexplained) {
+                publish(null, unexplained);
+            } else if (!teamNames.isEmpty()) {
+                publish(teamNames, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.repository.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Team / Team.members 2차 캐시 무효화
+ * 엔티티 변경과 HQL(Querydsl) bulk update / delete 는 Hibernate 가 직접 region 을 비운다.
+ * JDBC 로 직접 쓴 경우(BulkDataLoader 등)는 Hibernate 가 모르므로 onBulkMemberWrite 를 받아 비운다.
+ */
+@Component
+public class TeamCacheEvictor implements MemberWriteListener {
+
+    private static final String MEMBERS_ROLE = Team.class.getName() + ".members";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public TeamCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void onMemberWrite() {
+        // 엔티티 단위 변경은 Hibernate 가 캐시에 반영한다
+    }
+
+    @Override
+    public void onBulkMemberWrite() {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Team.class);
+        cache.evictCollectionData(MEMBERS_ROLE);
+    }
+}
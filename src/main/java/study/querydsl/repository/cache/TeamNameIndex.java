@@ -0,0 +1,162 @@
+package study.querydsl.repository.cache;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Team.name 의 trigram(연속된 3글자) 역인덱스
+ * teamName contains 조건(LIKE '%x%')을 팀 id 목록으로 바꿔서 member 쿼리가 team.id in (...) 로 조회하게 한다.
+ * 커밋된 팀 엔티티 변경은 바로 반영하고, bulk 연산 뒤에는 다음 조회 때 DB 에서 다시 만든다.
+ */
+@Component
+public class TeamNameIndex implements MemberWriteListener {
+
+    /**
+     * 이보다 많은 팀이 걸리면 IN 목록보다 LIKE 가 낫다
+     */
+    static final int MAX_TEAM_IDS = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private volatile Trigrams trigrams;
+    private volatile boolean stale = true;
+
+    public TeamNameIndex(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    /**
+     * @return key 의 teamName 을 포함하는 팀 id (비어 있으면 결과 없음), 인덱스를 쓸 수 없으면 null
+     */
+    public Set<Long> findTeamIds(MemberSearchKey key) {
+        if (key.getTeamName() == null) {
+            return null;
+        }
+        // 쓰기 트랜잭션 안에서는 아직 커밋되지 않은 팀 변경이 보여야 하므로 LIKE 로 조회한다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        Set<Long> teamIds = current().find(key.getTeamName());
+        return teamIds.size() > MAX_TEAM_IDS ? null : teamIds;
+    }
+
+    @Override
+    public void onMemberWrite() {
+        stale = true;
+    }
+
+    @Override
+    public void onTeamWrite(Set<String> teamNames) {
+        // 팀 이름 변경은 onTeamChange 로 들어온다
+    }
+
+    @Override
+    public synchronized void onTeamChange(Map<Long, String> teamNamesById) {
+        Trigrams current = trigrams;
+        if (current == null) {
+            return;
+        }
+        teamNamesById.forEach(current::put);
+    }
+
+    private Trigrams current() {
+        Trigrams current = trigrams;
+        if (current != null && !stale) {
+            return current;
+        }
+        synchronized (this) {
+            // 커밋 후 반영(onTeamChange)과 같은 락 안에서 읽으므로 그 사이의 변경을 놓치지 않는다
+            if (trigrams == null || stale) {
+                stale = false;
+                trigrams = load();
+            }
+            return trigrams;
+        }
+    }
+
+    private Trigrams load() {
+        Trigrams loaded = new Trigrams();
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            loaded.put(row.get(team.id), row.get(team.name));
+        }
+        return loaded;
+    }
+
+    /**
+     * 동시에 읽고 쓸 수 있는 인덱스 본체
+     * 후보는 항상 실제 이름으로 다시 확인하므로 trigram 이 겹치기만 하는 이름은 걸리지 않는다.
+     * DB 없이 탐색 비용만 재는 벤치마크(src/jmh)에서도 쓰므로 public 이다.
+     */
+    public static class Trigrams {
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+        private final Map<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+
+        /**
+         * @param name null 이면 삭제
+         */
+        public void put(Long teamId, String name) {
+            String old = name != null ? names.put(teamId, name) : names.remove(teamId);
+            if (old != null && !old.equals(name)) {
+                for (int i = 0; i + 3 <= old.length(); i++) {
+                    postings.computeIfPresent(trigram(old, i), (k, ids) -> {
+                        ids.remove(teamId);
+                        return ids.isEmpty() ? null : ids;
+                    });
+                }
+            }
+            if (name != null) {
+                for (int i = 0; i + 3 <= name.length(); i++) {
+                    postings.computeIfAbsent(trigram(name, i), k -> ConcurrentHashMap.newKeySet()).add(teamId);
+                }
+            }
+        }
+
+        public Set<Long> find(String teamName) {
+            if (teamName.length() < 3) {
+                return scan(names.keySet(), teamName); // trigram 이 없는 짧은 검색어
+            }
+
+            Set<Long> smallest = null;
+            for (int i = 0; i + 3 <= teamName.length(); i++) {
+                Set<Long> ids = postings.get(trigram(teamName, i));
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                if (smallest == null || ids.size() < smallest.size()) {
+                    smallest = ids;
+                }
+            }
+            return scan(smallest, teamName);
+        }
+
+        private Set<Long> scan(Set<Long> candidates, String teamName) {
+            Set<Long> result = new HashSet<>();
+            for (Long teamId : candidates) {
+                String name = names.get(teamId);
+                if (name != null && name.contains(teamName)) {
+                    result.add(teamId);
+                }
+            }
+            return result;
+        }
+
+        public int size() {
+            return names.size();
+        }
+
+        private static long trigram(String s, int i) {
+            return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.repository.stats;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * count / sum / min / max / avg(age)
+ * 회원이 없으면 min, max, avg 는 SQL 과 같이 null 이다.
+ */
+@Getter
+@EqualsAndHashCode
+public class MemberAggregate {
+
+    public static final MemberAggregate EMPTY = new MemberAggregate(0, 0, null, null);
+
+    private final long count;
+    private final long sum;
+    private final Integer min;
+    private final Integer max;
+
+    public MemberAggregate(long count, long sum, Integer min, Integer max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public Double getAvg() {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    public MemberAggregate plus(MemberAggregate other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        return new MemberAggregate(count + other.count, sum + other.sum,
+                Math.min(min, other.min), Math.max(max, other.max));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, sum=%d, min=%s, max=%s, avg=%s", count, sum, min, max, getAvg());
+    }
+}
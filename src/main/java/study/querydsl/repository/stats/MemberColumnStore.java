@@ -0,0 +1,675 @@
+package study.querydsl.repository.stats;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cache.MemberWriteListener;
+import study.querydsl.repository.support.BatchedLookups;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member 의 컬럼형 in-memory 스냅샷
+ * id 순으로 정렬된 long[] id, int[] age, String[] username, 팀 id 를 사전 인코딩한 int[] 팀 코드로 들고
+ * MemberSearchCondition 으로 거른 count / sum / min / max / avg, 팀 이름별 group by, 나이 히스토그램을
+ * 배열 루프로 계산한다 (행이 많으면 fork/join 으로 나눠서).
+ *
+ * 결과는 MemberRepository.search 와 같다 (inner join 이므로 팀 없는 회원은 빠지고, teamName 은 contains).
+ * 커밋된 엔티티 변경은 바뀐 회원 / 팀 id 만 모아 두었다가 다음 조회 때 한 번에 DB 에서 다시 읽어 덧씌우고(overlay),
+ * overlay 가 커지거나 bulk 연산이 커밋되면 다음 조회 때 전체를 다시 읽는다.
+ * 쓰기 트랜잭션의 afterCommit 에서는 id 를 모으기만 하므로 DB 조회도, 락도, 스냅샷 복사도 하지 않는다.
+ * 커밋된 데이터 기준이므로 쓰기 트랜잭션 안의 아직 커밋되지 않은 변경은 보이지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberColumnStore implements MemberWriteListener {
+
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int NO_TEAM = -1;
+    private static final int MIN_OVERLAY_LIMIT = 4_096;
+
+    private static final String LOAD_MEMBERS = "select member_id, username, age, team_id from member order by member_id";
+    private static final String LOAD_TEAMS = "select id, name from team";
+
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+
+    // 무효화될 때마다 증가, 마지막으로 다시 읽기 시작한 시점의 값과 다르면 stale
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long loadedGeneration = -1;
+    private volatile Snapshot snapshot;
+
+    // 커밋됐지만 아직 스냅샷에 반영하지 않은 id, 다음 조회 때 한 번에 다시 읽는다
+    private final Set<Long> pendingMembers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingTeams = ConcurrentHashMap.newKeySet();
+
+    public MemberColumnStore(EntityManager em, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public MemberAggregate aggregate(MemberSearchCondition condition) {
+        Snapshot current = current();
+        return current.scan(current.filter(condition), () -> new Groups(current.teams.size())).total();
+    }
+
+    /**
+     * select team.name, count, sum, min, max, avg ... group by team.name
+     */
+    public SortedMap<String, MemberAggregate> groupByTeamName(MemberSearchCondition condition) {
+        Snapshot current = current();
+        return current.scan(current.filter(condition), () -> new Groups(current.teams.size())).byTeamName(current.teams);
+    }
+
+    /**
+     * @return 구간 시작 나이(bucketWidth 의 배수) -> 회원 수, 회원이 없는 구간은 빠진다
+     */
+    public SortedMap<Integer, Long> ageHistogram(MemberSearchCondition condition, int bucketWidth) {
+        Assert.isTrue(bucketWidth > 0, "bucketWidth must be positive!");
+        Snapshot current = current();
+        if (current.minAge > current.maxAge) {
+            return Collections.emptySortedMap();
+        }
+        int low = Math.floorDiv(current.minAge, bucketWidth) * bucketWidth;
+        int buckets = (current.maxAge - low) / bucketWidth + 1;
+        return current.scan(current.filter(condition), () -> new Histogram(low, bucketWidth, buckets)).toMap();
+    }
+
+    public boolean isStale() {
+        return loadedGeneration != generation.get();
+    }
+
+    /**
+     * 지금 스냅샷의 회원 수 (팀 없는 회원 포함)
+     */
+    public int size() {
+        Snapshot current = current();
+        return current.size - current.overridden.cardinality() + current.overlay.size();
+    }
+
+    /**
+     * 커밋됐지만 아직 반영하지 않은 회원 / 팀 id 수
+     */
+    int pendingChanges() {
+        return pendingMembers.size() + pendingTeams.size();
+    }
+
+    /**
+     * member / team 을 DB 에서 전부 다시 읽는다
+     */
+    public synchronized void reload() {
+        long startGeneration = generation.get();
+        // 여기까지 모인 변경은 아래에서 읽는 데이터에 이미 들어 있다
+        pendingMembers.clear();
+        pendingTeams.clear();
+        snapshot = readTransaction.execute(status -> load());
+        loadedGeneration = startGeneration;
+    }
+
+    @Override
+    public void onMemberWrite() {
+        // 엔티티 단위 변경은 onMemberChange 로 반영된다
+    }
+
+    @Override
+    public void onBulkMemberWrite() {
+        invalidate();
+    }
+
+    @Override
+    public void onTeamChange(Map<Long, String> teamNamesById) {
+        // 이름은 반영할 때 DB 에서 다시 읽는다 (afterCommit 호출 순서가 커밋 순서와 같다는 보장이 없다)
+        pendingTeams.addAll(teamNamesById.keySet());
+    }
+
+    @Override
+    public void onMemberChange(Set<Long> memberIds) {
+        pendingMembers.addAll(memberIds);
+        Snapshot current = snapshot;
+        if (pendingMembers.size() > (current == null ? MIN_OVERLAY_LIMIT : overlayLimit(current))) {
+            invalidate(); // 하나씩 반영하느니 다음 조회 때 전부 다시 읽는다
+        }
+    }
+
+    /**
+     * 모인 id 를 버리고 다음 조회 때 전부 다시 읽게 한다.
+     * 버린 뒤에 generation 을 올리므로 그 전에 시작한 reload 는 stale 이 되어 다시 읽는다.
+     */
+    private void invalidate() {
+        pendingMembers.clear();
+        pendingTeams.clear();
+        generation.incrementAndGet();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !isStale() && pendingMembers.isEmpty() && pendingTeams.isEmpty()) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null || isStale()) {
+                reload();
+            } else if (!pendingMembers.isEmpty() || !pendingTeams.isEmpty()) {
+                applyPending();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * 모인 id 를 꺼내서 DB 에서 다시 읽는다. 꺼낸 뒤에 읽으므로 그 사이 커밋된 변경도 보이고,
+     * 꺼낸 뒤에 다시 들어온 id 는 다음 조회 때 반영된다.
+     */
+    private void applyPending() {
+        Set<Long> memberIds = drain(pendingMembers);
+        Set<Long> teamIds = drain(pendingTeams);
+        Snapshot next;
+        try {
+            next = readTransaction.execute(status -> refresh(memberIds, teamIds));
+        } catch (RuntimeException e) {
+            log.warn("member column store refresh failed, reloading", e);
+            next = null;
+        }
+        if (next == null) {
+            reload();
+            return;
+        }
+        snapshot = next;
+    }
+
+    private static Set<Long> drain(Set<Long> pending) {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private static int overlayLimit(Snapshot snapshot) {
+        return Math.max(MIN_OVERLAY_LIMIT, snapshot.size / 16);
+    }
+
+    private Snapshot load() {
+        Builder builder = new Builder();
+        jdbcTemplate.query(LOAD_MEMBERS, (RowCallbackHandler) rs -> {
+            long teamId = rs.getLong(4);
+            boolean noTeam = rs.wasNull();
+            builder.add(rs.getLong(1), rs.getString(2), rs.getInt(3), noTeam ? null : teamId);
+        });
+        // 회원을 먼저 읽었으므로 회원이 참조하는 팀은 모두 여기서 보인다
+        jdbcTemplate.query(LOAD_TEAMS, (RowCallbackHandler) rs -> builder.team(rs.getLong(1), rs.getString(2)));
+        return builder.build();
+    }
+
+    /**
+     * 바뀐 회원만 DB 에서 다시 읽어 overlay 에 넣는다 (DB 에 없으면 삭제), 바뀐 팀은 이름을 다시 읽는다
+     *
+     * @return 새 스냅샷, overlay 가 너무 커지면 null (전체를 다시 읽는다)
+     */
+    private Snapshot refresh(Set<Long> memberIds, Set<Long> teamIds) {
+        Snapshot current = snapshot;
+        Teams teams = current.teams;
+        if (!teamIds.isEmpty()) {
+            Map<Long, String> names = new HashMap<>(teamIds.size() * 2);
+            for (Long teamId : teamIds) {
+                if (teams.codeOf(teamId) != null) {
+                    names.put(teamId, null); // DB 에 없으면 삭제된 팀
+                }
+            }
+            BatchedLookups.fetchInOrder(names.keySet(),
+                            batch -> queryFactory
+                                    .select(team.id, team.name)
+                                    .from(team)
+                                    .where(team.id.in(batch))
+                                    .fetch(),
+                            row -> row.get(team.id))
+                    .forEach(row -> names.put(row.get(team.id), row.get(team.name)));
+            teams = teams.withNames(names);
+        }
+        if (memberIds.isEmpty()) {
+            return current.withChanges(Collections.emptyMap(), teams);
+        }
+
+        List<Tuple> rows = BatchedLookups.fetchInOrder(memberIds,
+                batch -> queryFactory
+                        .select(member.id, member.username, member.age, team.id, team.name)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(member.id.in(batch))
+                        .fetch(),
+                row -> row.get(member.id));
+
+        Map<Long, Row> changes = new HashMap<>(memberIds.size() * 2);
+        for (Long id : memberIds) {
+            changes.put(id, null);
+        }
+        for (Tuple row : rows) {
+            Long teamId = row.get(team.id);
+            int teamCode = NO_TEAM;
+            if (teamId != null) {
+                if (teams.codeOf(teamId) == null) {
+                    teams = teams.with(teamId, row.get(team.name));
+                }
+                teamCode = teams.codeOf(teamId);
+            }
+            Long id = row.get(member.id);
+            changes.put(id, new Row(row.get(member.username), row.get(member.age), teamCode));
+        }
+
+        Snapshot next = current.withChanges(changes, teams);
+        return next.overlay.size() > overlayLimit(next) ? null : next;
+    }
+
+    private static final class Filter {
+        private final String username;
+        private final boolean[] teams; // 팀 코드별 teamName 조건 일치 여부, null 이면 팀이 있기만 하면 된다
+        private final int ageGoe;
+        private final int ageLoe;
+
+        Filter(String username, boolean[] teams, int ageGoe, int ageLoe) {
+            this.username = username;
+            this.teams = teams;
+            this.ageGoe = ageGoe;
+            this.ageLoe = ageLoe;
+        }
+
+        boolean matches(String username, int age, int teamCode) {
+            return teamCode != NO_TEAM
+                    && age >= ageGoe
+                    && age <= ageLoe
+                    && (teams == null || teams[teamCode])
+                    && (this.username == null || this.username.equals(username));
+        }
+    }
+
+    private interface Accumulator<A extends Accumulator<A>> {
+        void add(int teamCode, int age);
+
+        A merge(A other);
+    }
+
+    /**
+     * 팀 코드별 count / sum / min / max
+     */
+    private static final class Groups implements Accumulator<Groups> {
+        private final long[] counts;
+        private final long[] sums;
+        private final int[] mins;
+        private final int[] maxs;
+
+        Groups(int teams) {
+            counts = new long[teams];
+            sums = new long[teams];
+            mins = new int[teams];
+            maxs = new int[teams];
+            Arrays.fill(mins, Integer.MAX_VALUE);
+            Arrays.fill(maxs, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public void add(int teamCode, int age) {
+            counts[teamCode]++;
+            sums[teamCode] += age;
+            if (age < mins[teamCode]) {
+                mins[teamCode] = age;
+            }
+            if (age > maxs[teamCode]) {
+                maxs[teamCode] = age;
+            }
+        }
+
+        @Override
+        public Groups merge(Groups other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                sums[i] += other.sums[i];
+                mins[i] = Math.min(mins[i], other.mins[i]);
+                maxs[i] = Math.max(maxs[i], other.maxs[i]);
+            }
+            return this;
+        }
+
+        MemberAggregate total() {
+            MemberAggregate total = MemberAggregate.EMPTY;
+            for (int i = 0; i < counts.length; i++) {
+                total = total.plus(group(i));
+            }
+            return total;
+        }
+
+        SortedMap<String, MemberAggregate> byTeamName(Teams teams) {
+            SortedMap<String, MemberAggregate> result = new TreeMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0 && teams.names[i] != null) {
+                    result.merge(teams.names[i], group(i), MemberAggregate::plus);
+                }
+            }
+            return result;
+        }
+
+        private MemberAggregate group(int teamCode) {
+            if (counts[teamCode] == 0) {
+                return MemberAggregate.EMPTY;
+            }
+            return new MemberAggregate(counts[teamCode], sums[teamCode], mins[teamCode], maxs[teamCode]);
+        }
+    }
+
+    private static final class Histogram implements Accumulator<Histogram> {
+        private final int low;
+        private final int width;
+        private final long[] counts;
+
+        Histogram(int low, int width, int buckets) {
+            this.low = low;
+            this.width = width;
+            this.counts = new long[buckets];
+        }
+
+        @Override
+        public void add(int teamCode, int age) {
+            counts[(age - low) / width]++;
+        }
+
+        @Override
+        public Histogram merge(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            return this;
+        }
+
+        SortedMap<Integer, Long> toMap() {
+            SortedMap<Integer, Long> result = new TreeMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    result.put(low + i * width, counts[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class ScanTask<A extends Accumulator<A>> extends RecursiveTask<A> {
+        private final Snapshot snapshot;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+        private final Supplier<A> accumulator;
+
+        ScanTask(Snapshot snapshot, Filter filter, int from, int to, Supplier<A> accumulator) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return snapshot.scanRange(filter, from, to, accumulator.get());
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask<A> left = new ScanTask<>(snapshot, filter, from, mid, accumulator);
+            left.fork();
+            A right = new ScanTask<>(snapshot, filter, mid, to, accumulator).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    /**
+     * 팀 id <-> 팀 코드(배열 인덱스) 사전, 팀 이름은 코드별로 (삭제된 팀은 null)
+     */
+    private static final class Teams {
+        private final long[] ids;
+        private final String[] names;
+        private final Map<Long, Integer> codes;
+
+        Teams(long[] ids, String[] names, Map<Long, Integer> codes) {
+            this.ids = ids;
+            this.names = names;
+            this.codes = codes;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        Integer codeOf(long teamId) {
+            return codes.get(teamId);
+        }
+
+        /**
+         * 이미 있는 팀의 이름만 바꾼다 (null 이면 삭제된 팀)
+         */
+        Teams withNames(Map<Long, String> namesById) {
+            if (namesById.isEmpty()) {
+                return this;
+            }
+            String[] renamed = names.clone();
+            namesById.forEach((teamId, name) -> renamed[codes.get(teamId)] = name);
+            return new Teams(ids, renamed, codes);
+        }
+
+        Teams with(long teamId, String name) {
+            Integer code = codes.get(teamId);
+            if (code != null) {
+                String[] renamed = names.clone();
+                renamed[code] = name;
+                return new Teams(ids, renamed, codes);
+            }
+            Map<Long, Integer> added = new HashMap<>(codes);
+            added.put(teamId, ids.length);
+            long[] addedIds = Arrays.copyOf(ids, ids.length + 1);
+            addedIds[ids.length] = teamId;
+            String[] addedNames = Arrays.copyOf(names, names.length + 1);
+            addedNames[names.length] = name;
+            return new Teams(addedIds, addedNames, added);
+        }
+    }
+
+    private static final class Row {
+        private final String username;
+        private final int age;
+        private final int teamCode;
+
+        Row(String username, int age, int teamCode) {
+            this.username = username;
+            this.age = age;
+            this.teamCode = teamCode;
+        }
+    }
+
+    /**
+     * 불변 스냅샷: 정렬된 기본 컬럼 + 덧씌운 행(overlay)
+     * overlay 에 있는 id(또는 삭제된 id)의 기본 행은 overridden 비트로 건너뛴다.
+     */
+    private static final class Snapshot {
+        private final int size;
+        private final long[] ids;
+        private final String[] usernames;
+        private final int[] ages;
+        private final int[] teamCodes;
+        private final BitSet overridden;
+        private final Map<Long, Row> overlay;
+        private final Teams teams;
+        private final int minAge;
+        private final int maxAge;
+
+        Snapshot(int size, long[] ids, String[] usernames, int[] ages, int[] teamCodes,
+                 BitSet overridden, Map<Long, Row> overlay, Teams teams, int minAge, int maxAge) {
+            this.size = size;
+            this.ids = ids;
+            this.usernames = usernames;
+            this.ages = ages;
+            this.teamCodes = teamCodes;
+            this.overridden = overridden;
+            this.overlay = overlay;
+            this.teams = teams;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+        }
+
+        /**
+         * 조회 때 모인 변경을 한 번에 반영하므로 overridden / overlay 복사는 커밋마다가 아니라 반영할 때 한 번이다.
+         *
+         * @param changes id -> 새 행 (null 이면 삭제)
+         */
+        Snapshot withChanges(Map<Long, Row> changes, Teams teams) {
+            if (changes.isEmpty()) {
+                return new Snapshot(size, ids, usernames, ages, teamCodes, overridden, overlay, teams, minAge, maxAge);
+            }
+            BitSet nextOverridden = (BitSet) overridden.clone();
+            Map<Long, Row> nextOverlay = new HashMap<>(overlay);
+            int nextMin = minAge;
+            int nextMax = maxAge;
+            for (Map.Entry<Long, Row> change : changes.entrySet()) {
+                int index = Arrays.binarySearch(ids, 0, size, change.getKey());
+                if (index >= 0) {
+                    nextOverridden.set(index);
+                }
+                Row row = change.getValue();
+                if (row == null) {
+                    nextOverlay.remove(change.getKey());
+                } else {
+                    nextOverlay.put(change.getKey(), row);
+                    nextMin = Math.min(nextMin, row.age);
+                    nextMax = Math.max(nextMax, row.age);
+                }
+            }
+            return new Snapshot(size, ids, usernames, ages, teamCodes, nextOverridden, nextOverlay, teams, nextMin, nextMax);
+        }
+
+        Filter filter(MemberSearchCondition condition) {
+            boolean[] teamMatches = null;
+            if (hasText(condition.getTeamName())) {
+                teamMatches = new boolean[teams.size()];
+                for (int i = 0; i < teamMatches.length; i++) {
+                    teamMatches[i] = teams.names[i] != null && teams.names[i].contains(condition.getTeamName());
+                }
+            }
+            return new Filter(hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    teamMatches,
+                    condition.getAgeGoe() == null ? Integer.MIN_VALUE : condition.getAgeGoe(),
+                    condition.getAgeLoe() == null ? Integer.MAX_VALUE : condition.getAgeLoe());
+        }
+
+        <A extends Accumulator<A>> A scan(Filter filter, Supplier<A> accumulator) {
+            A result = size > PARALLEL_THRESHOLD
+                    ? ForkJoinPool.commonPool().invoke(new ScanTask<>(this, filter, 0, size, accumulator))
+                    : scanRange(filter, 0, size, accumulator.get());
+            for (Row row : overlay.values()) {
+                if (filter.matches(row.username, row.age, row.teamCode)) {
+                    result.add(row.teamCode, row.age);
+                }
+            }
+            return result;
+        }
+
+        <A extends Accumulator<A>> A scanRange(Filter filter, int from, int to, A accumulator) {
+            int[] ages = this.ages;
+            int[] teamCodes = this.teamCodes;
+            String[] usernames = this.usernames;
+            boolean anyOverridden = !overridden.isEmpty();
+            for (int i = from; i < to; i++) {
+                if (filter.matches(usernames[i], ages[i], teamCodes[i]) && !(anyOverridden && overridden.get(i))) {
+                    accumulator.add(teamCodes[i], ages[i]);
+                }
+            }
+            return accumulator;
+        }
+    }
+
+    /**
+     * 전체 적재용 (id 순서로 들어온다)
+     */
+    private static final class Builder {
+        private long[] ids = new long[1024];
+        private String[] usernames = new String[1024];
+        private int[] ages = new int[1024];
+        private int[] teamCodes = new int[1024];
+        private int size;
+        private int minAge = Integer.MAX_VALUE;
+        private int maxAge = Integer.MIN_VALUE;
+
+        private final Map<Long, Integer> codes = new HashMap<>();
+        private final List<Long> teamIds = new ArrayList<>();
+        private final List<String> teamNames = new ArrayList<>();
+
+        void add(long id, String username, int age, Long teamId) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            ids[size] = id;
+            usernames[size] = username;
+            ages[size] = age;
+            teamCodes[size] = teamId == null ? NO_TEAM : code(teamId);
+            size++;
+            minAge = Math.min(minAge, age);
+            maxAge = Math.max(maxAge, age);
+        }
+
+        void team(long teamId, String name) {
+            teamNames.set(code(teamId), name);
+        }
+
+        private int code(long teamId) {
+            Integer code = codes.get(teamId);
+            if (code == null) {
+                code = teamIds.size();
+                codes.put(teamId, code);
+                teamIds.add(teamId);
+                teamNames.add(null);
+            }
+            return code;
+        }
+
+        Snapshot build() {
+            long[] teamIdArray = new long[teamIds.size()];
+            for (int i = 0; i < teamIdArray.length; i++) {
+                teamIdArray[i] = teamIds.get(i);
+            }
+            Teams teams = new Teams(teamIdArray, teamNames.toArray(new String[0]), codes);
+            return new Snapshot(size, ids, usernames, ages, teamCodes, new BitSet(), Collections.emptyMap(), teams, minAge, maxAge);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package study.querydsl.repository.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.MemberWriteListener;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * team_stats 유지
+ * Member 의 insert / delete / 나이 변경 / 팀 이동을 Hibernate 이벤트로 받아 팀별 증감을 모아 두었다가
+ * 같은 트랜잭션의 커밋 직전(flush 이후)에 팀 수만큼의 SQL 로 반영한다.
+ * 최소 / 최대는 빠진 나이가 경계값일 때만 그 팀의 회원에서 다시 구한다.
+ * team_stats 행은 Team 을 insert 하는 트랜잭션에서 (0 건으로) 만들어 두므로 증감은 update 만 한다.
+ * 행이 없으면 (반영 전 rebuild 와 겹치는 등) 만들지 않고 stale 로 표시해서 다시 만든다. 통계 때문에 업무 트랜잭션이 실패하지 않는다.
+ *
+ * 엔티티를 거치지 않는 쓰기(bulk 연산, JDBC)는 증감을 알 수 없으므로 stale 로 표시하고 백그라운드에서 전체를 다시 만든다.
+ * stale 인 동안 TeamStatsRepository 는 member 를 직접 집계한다.
+ *
+ * rebuild 와 겹쳐서 커밋된 증감은 rebuild 의 merge 가 덮어쓸 수 있다 (member 를 읽을 때는 커밋 전이라 빠지고,
+ * 증감을 반영한 team_stats 행은 커밋 후 merge 가 덮어씀). 그래서 증감을 반영한 뒤 커밋하기까지의 구간이
+ * rebuild 와 겹치면 커밋 후 stale 로 표시해서 다시 만든다.
+ */
+@Slf4j
+@Component
+public class TeamStatsMaintainer implements MemberWriteListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener, DisposableBean {
+
+    private static final String INSERT = "insert into team_stats (team_id, member_count, age_sum) values (?, 0, 0)";
+    private static final String UPDATE = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?,"
+            + " min_age = least(coalesce(min_age, cast(? as int)), coalesce(cast(? as int), min_age)),"
+            + " max_age = greatest(coalesce(max_age, cast(? as int)), coalesce(cast(? as int), max_age))"
+            + " where team_id = ?";
+    private static final String RECOMPUTE_MIN_MAX = "update team_stats set"
+            + " min_age = (select min(m.age) from member m where m.team_id = team_stats.team_id),"
+            + " max_age = (select max(m.age) from member m where m.team_id = team_stats.team_id)"
+            + " where team_id = ? and (min_age >= ? or max_age <= ?)";
+    private static final String DELETE = "delete from team_stats where team_id = ?";
+    // 회원 없는 팀도 0 건으로 만든다, rebuild 중에 커밋된 새 팀의 행과 겹쳐도 실패하지 않도록 merge
+    private static final String REBUILD = "merge into team_stats s using ("
+            + " select t.id team_id, count(m.member_id) member_count, coalesce(sum(m.age), 0) age_sum,"
+            + " min(m.age) min_age, max(m.age) max_age"
+            + " from team t left join member m on m.team_id = t.id group by t.id) r on s.team_id = r.team_id"
+            + " when matched then update set member_count = r.member_count, age_sum = r.age_sum,"
+            + " min_age = r.min_age, max_age = r.max_age"
+            + " when not matched then insert (team_id, member_count, age_sum, min_age, max_age)"
+            + " values (r.team_id, r.member_count, r.age_sum, r.min_age, r.max_age)";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("team-stats-"));
+    private final Map<SharedSessionContractImplementor, PendingStats> pendingBySession = new ConcurrentHashMap<>();
+
+    // 무효화될 때마다 증가, 마지막 rebuild 가 시작된 시점의 값과 다르면 stale
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile long builtGeneration = -1; // 시작할 때는 테이블이 비어 있을 수 있다
+    // rebuild 를 시작할 때와 끝날 때 증가, 홀수면 rebuild 중
+    private final AtomicLong rebuildEpoch = new AtomicLong();
+
+    public TeamStatsMaintainer(EntityManagerFactory entityManagerFactory,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        requestRebuild();
+    }
+
+    public boolean isStale() {
+        return builtGeneration != generation.get();
+    }
+
+    /**
+     * team_stats 를 member 에서 다시 만든다 (한 트랜잭션)
+     */
+    public synchronized void rebuild() {
+        long startGeneration = generation.get();
+        rebuildEpoch.incrementAndGet();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("delete from team_stats where team_id not in (select id from team)");
+                jdbcTemplate.update(REBUILD);
+            });
+        } finally {
+            rebuildEpoch.incrementAndGet();
+        }
+        // 다시 만드는 동안 무효화가 있었다면 여전히 stale 이고, 그 무효화가 rebuild 를 다시 예약해 두었다
+        builtGeneration = startGeneration;
+    }
+
+    /**
+     * 백그라운드 rebuild 예약 (이미 예약되어 있으면 합쳐진다)
+     */
+    public void requestRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("team_stats rebuild failed", e);
+            }
+        });
+    }
+
+    @Override
+    public void onMemberWrite() {
+        // 엔티티 단위 변경은 이벤트로 반영된다
+    }
+
+    @Override
+    public void onBulkMemberWrite() {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        requestRebuild();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            pending(event.getSession()).add(teamIdOf(event.getPersister(), state), ageOf(event.getPersister(), state));
+        } else if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).insertedTeams.add((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            pending(event.getSession()).unknown = true; // 변경 전 값을 모르는 update (detached 엔티티 update 등)
+            return;
+        }
+        Long oldTeamId = teamIdOf(persister, oldState);
+        Long newTeamId = teamIdOf(persister, event.getState());
+        int oldAge = ageOf(persister, oldState);
+        int newAge = ageOf(persister, event.getState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        PendingStats pending = pending(event.getSession());
+        pending.remove(oldTeamId, oldAge);
+        pending.add(newTeamId, newAge);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getDeletedState();
+            pending(event.getSession()).remove(teamIdOf(event.getPersister(), state), ageOf(event.getPersister(), state));
+        } else if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).deletedTeams.add((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 세션(= 트랜잭션)마다 하나, 처음 변경될 때 커밋 전후 처리와 함께 등록한다
+     */
+    private PendingStats pending(EventSource session) {
+        return pendingBySession.computeIfAbsent(session, s -> {
+            PendingStats pending = new PendingStats();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) pending);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) pending);
+            return pending;
+        });
+    }
+
+    private static Long teamIdOf(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier(); // 초기화하지 않는다
+        }
+        return ((Team) team).getId();
+    }
+
+    private static int ageOf(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    /**
+     * 한 팀의 증감
+     */
+    private static class Delta {
+        private long count;
+        private long sum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private Integer removedMin;
+        private Integer removedMax;
+    }
+
+    private class PendingStats implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+        private final Map<Long, Delta> deltas = new HashMap<>();
+        private final Set<Long> insertedTeams = new HashSet<>();
+        private final Set<Long> deletedTeams = new HashSet<>();
+        private boolean unknown;
+        private boolean missingRows;
+        private long epochAtApply;
+
+        void add(Long teamId, int age) {
+            if (teamId == null) {
+                return; // 팀 없는 회원은 집계하지 않는다
+            }
+            Delta delta = deltas.computeIfAbsent(teamId, id -> new Delta());
+            delta.count++;
+            delta.sum += age;
+            delta.addedMin = delta.addedMin == null ? age : Math.min(delta.addedMin, age);
+            delta.addedMax = delta.addedMax == null ? age : Math.max(delta.addedMax, age);
+        }
+
+        void remove(Long teamId, int age) {
+            if (teamId == null) {
+                return;
+            }
+            Delta delta = deltas.computeIfAbsent(teamId, id -> new Delta());
+            delta.count--;
+            delta.sum -= age;
+            delta.removedMin = delta.removedMin == null ? age : Math.min(delta.removedMin, age);
+            delta.removedMax = delta.removedMax == null ? age : Math.max(delta.removedMax, age);
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            epochAtApply = rebuildEpoch.get(); // 반영하기 전에 읽는다
+            session.doWork(this::apply);
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pendingBySession.remove(session);
+            if (success && (unknown || missingRows || overlapsRebuild())) {
+                invalidate();
+            }
+        }
+
+        /**
+         * 반영 ~ 커밋 사이에 rebuild 가 진행 중이었거나 시작됐으면 이 증감이 덮어써졌을 수 있다
+         */
+        private boolean overlapsRebuild() {
+            boolean changed = !deltas.isEmpty() || !insertedTeams.isEmpty() || !deletedTeams.isEmpty();
+            return changed && ((epochAtApply & 1) == 1 || rebuildEpoch.get() != epochAtApply);
+        }
+
+        private void apply(Connection connection) throws SQLException {
+            if (!insertedTeams.isEmpty()) {
+                // 새 팀 id 이므로 다른 트랜잭션과 겹치지 않는다
+                try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                    for (Long teamId : insertedTeams) {
+                        insert.setLong(1, teamId);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            }
+            if (!deltas.isEmpty()) {
+                try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                    for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+                        Delta delta = entry.getValue();
+                        update.setLong(1, delta.count);
+                        update.setLong(2, delta.sum);
+                        update.setObject(3, delta.addedMin, Types.INTEGER);
+                        update.setObject(4, delta.addedMin, Types.INTEGER);
+                        update.setObject(5, delta.addedMax, Types.INTEGER);
+                        update.setObject(6, delta.addedMax, Types.INTEGER);
+                        update.setLong(7, entry.getKey());
+                        update.addBatch();
+                    }
+                    for (int updated : update.executeBatch()) {
+                        if (updated == 0) {
+                            missingRows = true; // 행을 만들지 않는다 (음수 건수가 생긴다), 커밋 후 다시 만든다
+                        }
+                    }
+                }
+                try (PreparedStatement recompute = connection.prepareStatement(RECOMPUTE_MIN_MAX)) {
+                    boolean any = false;
+                    for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+                        Delta delta = entry.getValue();
+                        if (delta.removedMin != null) {
+                            recompute.setLong(1, entry.getKey());
+                            recompute.setInt(2, delta.removedMin);
+                            recompute.setInt(3, delta.removedMax);
+                            recompute.addBatch();
+                            any = true;
+                        }
+                    }
+                    if (any) {
+                        recompute.executeBatch();
+                    }
+                }
+            }
+            if (!deletedTeams.isEmpty()) {
+                try (PreparedStatement delete = connection.prepareStatement(DELETE)) {
+                    for (Long teamId : deletedTeams) {
+                        delete.setLong(1, teamId);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+            }
+        }
+    }
+}
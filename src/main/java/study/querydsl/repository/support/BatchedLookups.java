@@ -0,0 +1,57 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 여러 키를 IN 절 배치로 나눠 조회하고 결과를 입력 순서대로 돌려준다.
+ * 배치 크기가 2의 제곱수이고 hibernate.query.in_clause_parameter_padding 으로 마지막 배치도 2의 제곱수로 채워지므로
+ * 키 개수와 상관없이 IN 절 모양(= 쿼리 플랜 / H2 statement 캐시 항목)은 log2(BATCH_SIZE) + 1 가지뿐이다.
+ */
+public final class BatchedLookups {
+
+    public static final int BATCH_SIZE = 512; // 2의 제곱수
+
+    private BatchedLookups() {
+    }
+
+    /**
+     * @param keys  중복과 null 은 무시한다
+     * @param query 배치 하나(최대 BATCH_SIZE 개)를 IN 절로 조회
+     * @param keyOf 결과에서 키를 꺼낸다
+     * @return 입력 키 순서대로, 같은 키의 결과는 query 가 돌려준 순서대로
+     */
+    public static <K, V> List<V> fetchInOrder(Collection<? extends K> keys,
+                                              Function<List<K>, List<V>> query,
+                                              Function<? super V, ? extends K> keyOf) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinct.removeIf(Objects::isNull);
+        if (distinct.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<K, List<V>> valuesByKey = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += BATCH_SIZE) {
+            List<K> batch = new ArrayList<>(distinct.subList(from, Math.min(from + BATCH_SIZE, distinct.size())));
+            for (V value : query.apply(batch)) {
+                valuesByKey.computeIfAbsent(keyOf.apply(value), k -> new ArrayList<>(1)).add(value);
+            }
+        }
+
+        List<V> result = new ArrayList<>(distinct.size());
+        for (K key : distinct) {
+            List<V> values = valuesByKey.get(key);
+            if (values != null) {
+                result.addAll(values);
+            }
+        }
+        return result;
+    }
+}
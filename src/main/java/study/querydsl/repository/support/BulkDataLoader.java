@@ -0,0 +1,267 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.cache.MemberWriteTracker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Team / Member 대량 적재
+ * em.persist 대신 JDBC batch insert 로 넣고, chunkSize 건마다 커밋해서 트랜잭션과 영속성 컨텍스트가 커지지 않는다.
+ * id 는 엔티티와 같은 sequence 에서 pooled-lo 블록(50개) 단위로 한 번에 여러 블록씩 예약한다.
+ * Hibernate 를 거치지 않으므로 적재가 끝나면 (실패해도 이미 커밋한 chunk 가 있으므로) MemberWriteTracker 에 bulk 변경을 한 번 알린다.
+ */
+@Component
+public class BulkDataLoader {
+
+    /**
+     * Member / Team 의 @SequenceGenerator allocationSize 와 같아야 한다
+     */
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_TEAM = "insert into team (id, name) values (?, ?)";
+    private static final String INSERT_MEMBER = "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberWriteTracker memberWriteTracker;
+
+    public BulkDataLoader(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          MemberWriteTracker memberWriteTracker) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.memberWriteTracker = memberWriteTracker;
+    }
+
+    /**
+     * spec 에 따라 팀 spec.teams 개, 회원 spec.members 명을 만든다.
+     */
+    public BulkLoadResult generate(BulkLoadSpec spec) {
+        try {
+            return doGenerate(spec);
+        } finally {
+            memberWriteTracker.onBulkWrite();
+        }
+    }
+
+    private BulkLoadResult doGenerate(BulkLoadSpec spec) {
+        long start = System.nanoTime();
+        Random random = new Random(spec.getSeed());
+
+        IdBlocks teamIds = new IdBlocks("team_seq");
+        long[] teams = new long[spec.getTeams()];
+        List<Object[]> rows = new ArrayList<>(spec.getChunkSize());
+        for (int i = 0; i < teams.length; i++) {
+            teams[i] = teamIds.next(teams.length - i);
+            rows.add(new Object[]{teams[i], "team" + i});
+            if (rows.size() == spec.getChunkSize()) {
+                insert(INSERT_TEAM, rows);
+            }
+        }
+        insert(INSERT_TEAM, rows);
+
+        double[] teamCdf = teamCdf(teams.length, spec.getTeamSkew());
+        IdBlocks memberIds = new IdBlocks("member_seq");
+        for (long i = 0; i < spec.getMembers(); i++) {
+            Long teamId = null;
+            if (teams.length > 0 && random.nextDouble() >= spec.getNoTeamRatio()) {
+                teamId = teams[pick(teamCdf, random.nextDouble())];
+            }
+            int age = spec.getMinAge() + random.nextInt(spec.getMaxAge() - spec.getMinAge() + 1);
+            rows.add(new Object[]{memberIds.next(spec.getMembers() - i), "member" + i, age, teamId});
+            if (rows.size() == spec.getChunkSize()) {
+                insert(INSERT_MEMBER, rows);
+            }
+        }
+        insert(INSERT_MEMBER, rows);
+
+        return new BulkLoadResult(teams.length, spec.getMembers(), System.nanoTime() - start);
+    }
+
+    /**
+     * username,age,teamName 형식의 CSV(RFC 4180, UTF-8) 를 넣는다 (teamName 이 비어 있으면 팀 없는 회원).
+     * 이미 있는 이름의 팀은 그 팀을 쓰고, 없는 팀은 새로 만든다.
+     */
+    public BulkLoadResult ingest(Path csv, int chunkSize) throws IOException {
+        try {
+            return doIngest(csv, chunkSize);
+        } finally {
+            memberWriteTracker.onBulkWrite();
+        }
+    }
+
+    private BulkLoadResult doIngest(Path csv, int chunkSize) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Long> teamIdsByName = new HashMap<>();
+        jdbcTemplate.query("select id, name from team", rs -> {
+            teamIdsByName.putIfAbsent(rs.getString(2), rs.getLong(1));
+        });
+
+        IdBlocks teamIds = new IdBlocks("team_seq");
+        IdBlocks memberIds = new IdBlocks("member_seq");
+        List<Object[]> teamRows = new ArrayList<>();
+        List<Object[]> memberRows = new ArrayList<>(chunkSize);
+        long members = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            CsvReader records = new CsvReader(reader);
+            List<String> columns;
+            while ((columns = records.next()) != null) {
+                if (columns.size() != 3) {
+                    throw new IllegalArgumentException("username,age,teamName 형식이 아닙니다: line "
+                            + records.getRecordLineNumber() + " " + columns);
+                }
+
+                Long teamId = null;
+                String teamName = columns.get(2).trim();
+                if (!teamName.isEmpty()) {
+                    teamId = teamIdsByName.get(teamName);
+                    if (teamId == null) {
+                        teamId = teamIds.next(1);
+                        teamIdsByName.put(teamName, teamId);
+                        teamRows.add(new Object[]{teamId, teamName});
+                    }
+                }
+                memberRows.add(new Object[]{memberIds.next(chunkSize), columns.get(0).trim(), Integer.parseInt(columns.get(1).trim()), teamId});
+                members++;
+
+                if (memberRows.size() == chunkSize) {
+                    insert(teamRows, memberRows);
+                }
+            }
+        }
+        insert(teamRows, memberRows);
+
+        return new BulkLoadResult(teamIds.used, members, System.nanoTime() - start);
+    }
+
+    private void insert(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(sql, rows);
+        });
+        rows.clear();
+    }
+
+    /**
+     * 회원이 참조하는 새 팀을 같은 트랜잭션에서 먼저 넣는다
+     */
+    private void insert(List<Object[]> teamRows, List<Object[]> memberRows) {
+        if (teamRows.isEmpty() && memberRows.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!teamRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_TEAM, teamRows);
+            }
+            if (!memberRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_MEMBER, memberRows);
+            }
+        });
+        teamRows.clear();
+        memberRows.clear();
+    }
+
+    /**
+     * 팀 순위 k 의 가중치가 1 / (k + 1)^skew 인 누적 분포
+     */
+    static double[] teamCdf(int teams, double skew) {
+        double[] cdf = new double[teams];
+        double sum = 0;
+        for (int k = 0; k < teams; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < teams; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    static int pick(double[] cdf, double u) {
+        int index = Arrays.binarySearch(cdf, u);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return Math.min(index, cdf.length - 1);
+    }
+
+    /**
+     * sequence 에서 예약한 id 블록
+     * 남은 건수만큼(최대 MAX_BLOCKS 블록) 한 번의 쿼리로 예약한다.
+     */
+    private class IdBlocks {
+        private static final int MAX_BLOCKS = 200;
+
+        private final String sequence;
+        private final List<Long> blocks = new ArrayList<>();
+        private int blockIndex;
+        private long next;
+        private long end;
+        private long used;
+
+        IdBlocks(String sequence) {
+            this.sequence = sequence;
+        }
+
+        long next(long remaining) {
+            if (next == end) {
+                if (blockIndex == blocks.size()) {
+                    reserve(remaining);
+                }
+                next = blocks.get(blockIndex++);
+                end = next + ALLOCATION_SIZE;
+            }
+            used++;
+            return next++;
+        }
+
+        private void reserve(long remaining) {
+            long count = Math.min(MAX_BLOCKS, (remaining + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE);
+            blocks.clear();
+            blocks.addAll(jdbcTemplate.queryForList(
+                    "select next value for " + sequence + " from system_range(1, ?)", Long.class, count));
+            blockIndex = 0;
+        }
+    }
+
+    @Getter
+    public static class BulkLoadResult {
+        private final long teams;
+        private final long members;
+        private final long elapsedNanos;
+
+        BulkLoadResult(long teams, long members, long elapsedNanos) {
+            this.teams = teams;
+            this.members = members;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (teams + members) * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("teams=%d, members=%d, elapsed=%dms, %.0f rows/s",
+                    teams, members, elapsedNanos / 1_000_000, getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.repository.support;
+
+import lombok.Data;
+
+/**
+ * BulkDataLoader 로 만들 데이터의 모양
+ * 같은 seed 면 항상 같은 데이터가 만들어진다.
+ */
+@Data
+public class BulkLoadSpec {
+
+    private long seed = 1L;
+    private int teams = 1_000;
+    private long members = 1_000_000;
+
+    // 나이는 [minAge, maxAge] 균등 분포
+    private int minAge = 10;
+    private int maxAge = 80;
+
+    // 팀 크기 분포 (zipf 지수, 0 이면 균등)
+    private double teamSkew = 0.0;
+    // 팀이 없는 회원 비율
+    private double noTeamRatio = 0.0;
+
+    // 한 트랜잭션(= 한 JDBC batch)으로 넣을 row 수
+    private int chunkSize = 5_000;
+
+    // 있으면 생성하지 않고 CSV(username,age,teamName) 를 읽어 넣는다
+    private String file;
+}
@@ -0,0 +1,22 @@
+package study.querydsl.repository.support;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * QueryDslSupportRepository.bulkUpdate / bulkDelete 의 chunk 설정
+ */
+@Data
+public class BulkMutationOptions {
+
+    // 한 트랜잭션(= 한 update / delete 문)이 건드릴 최대 row 수
+    private int chunkSize = 1_000;
+
+    // chunk 사이 쉬는 시간 (다른 트랜잭션이 lock 을 잡을 틈을 준다)
+    private Duration throttle = Duration.ZERO;
+
+    // chunk 가 커밋될 때마다 호출된다
+    private Consumer<BulkMutationProgress> progressListener;
+}
@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+
+/**
+ * 지금까지 커밋된 chunk 의 누적 결과
+ */
+@Getter
+public class BulkMutationProgress {
+    private final long chunks;
+    private final long affectedRows;
+    private final Long lastId;
+    private final long elapsedNanos;
+
+    BulkMutationProgress(long chunks, long affectedRows, Long lastId, long elapsedNanos) {
+        this.chunks = chunks;
+        this.affectedRows = affectedRows;
+        this.lastId = lastId;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("chunks=%d, affectedRows=%d, lastId=%s, elapsed=%dms",
+                chunks, affectedRows, lastId, elapsedNanos / 1_000_000);
+    }
+}
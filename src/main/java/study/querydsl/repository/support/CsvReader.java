@@ -0,0 +1,122 @@
+package study.querydsl.repository.support;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV 레코드 reader
+ * 큰따옴표로 감싼 필드 안의 쉼표, 줄바꿈, 이스케이프된 큰따옴표("")를 처리한다.
+ * 빈 줄은 건너뛴다.
+ */
+class CsvReader {
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pushback = -2;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 다음 레코드의 필드, 더 없으면 null
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            skipLineBreak(c);
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+            } else {
+                while (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                    if (c == '"') {
+                        throw new IllegalArgumentException("따옴표로 감싸지 않은 필드에 따옴표가 있습니다: line " + lineNumber);
+                    }
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c != -1) {
+                skipLineBreak(c);
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * 마지막으로 읽은 레코드가 시작한 줄 (1부터)
+     */
+    long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    /**
+     * 여는 따옴표 다음부터 닫는 따옴표까지 읽고 그 다음 문자를 돌려준다
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IllegalArgumentException("닫는 따옴표가 없습니다: line " + recordLineNumber);
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    if (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                        throw new IllegalArgumentException("닫는 따옴표 뒤에 문자가 있습니다: line " + lineNumber);
+                    }
+                    return c;
+                }
+            } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                lineNumber++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    /**
+     * 이미 읽은 c 가 \r 이면 뒤따르는 \n 까지 건너뛴다 (\r\n, \n, \r 모두 줄바꿈 하나)
+     */
+    private void skipLineBreak(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+        lineNumber++;
+    }
+
+    private int peek() throws IOException {
+        if (pushback == -2) {
+            pushback = reader.read();
+        }
+        return pushback;
+    }
+
+    private int read() throws IOException {
+        if (pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
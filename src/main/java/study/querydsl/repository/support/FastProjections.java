@@ -0,0 +1,281 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Projections.bean / fields / constructor 를 대신하는 DTO 프로젝션
+ * DTO 클래스(와 컬럼 구성)마다 한 번만 setter 람다(LambdaMetafactory), 필드 / 생성자 MethodHandle 을 만들어 두고
+ * row 마다 리플렉션 없이 컬럼 인덱스 순서대로 값을 넣는다.
+ *
+ * 규칙은 Querydsl 과 같다.
+ * - bean, fields: 경로 이름이나 as("이름") 으로 프로퍼티를 찾고, null 값은 넣지 않는다.
+ * - constructor: 인자 타입이 맞는 생성자를 찾고, primitive 인자의 null 은 기본값으로 바꾼다.
+ */
+public final class FastProjections {
+
+    private static final ConcurrentMap<List<Object>, Instantiator> INSTANTIATORS = new ConcurrentHashMap<>();
+
+    private FastProjections() {
+    }
+
+    public static <T> FactoryExpression<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        List<Object> key = Arrays.asList("bean", type, Arrays.asList(namesOf(exprs)));
+        return new Projection<>(type, exprs, INSTANTIATORS.computeIfAbsent(key, k -> beanInstantiator(type, namesOf(exprs))));
+    }
+
+    public static <T> FactoryExpression<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        List<Object> key = Arrays.asList("fields", type, Arrays.asList(namesOf(exprs)));
+        return new Projection<>(type, exprs, INSTANTIATORS.computeIfAbsent(key, k -> fieldInstantiator(type, namesOf(exprs))));
+    }
+
+    public static <T> FactoryExpression<T> constructor(Class<? extends T> type, Expression<?>... exprs) {
+        Class<?>[] argTypes = new Class<?>[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            argTypes[i] = exprs[i].getType();
+        }
+        List<Object> key = Arrays.asList("constructor", type, Arrays.asList(argTypes));
+        return new Projection<>(type, exprs, INSTANTIATORS.computeIfAbsent(key, k -> constructorInstantiator(type, argTypes)));
+    }
+
+    @FunctionalInterface
+    private interface Instantiator {
+        Object newInstance(Object[] args) throws Throwable;
+    }
+
+    private static Instantiator beanInstantiator(Class<?> type, String[] names) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle creator = creator(lookup, type);
+            BiConsumer<Object, Object>[] setters = newSetters(names.length);
+            for (int i = 0; i < names.length; i++) {
+                setters[i] = setterLambda(lookup, type, names[i]);
+            }
+            return args -> {
+                Object bean = (Object) creator.invokeExact();
+                for (int i = 0; i < setters.length; i++) {
+                    if (args[i] != null) {
+                        setters[i].accept(bean, args[i]);
+                    }
+                }
+                return bean;
+            };
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(type.getName() + " 의 bean 프로젝션을 만들 수 없습니다", e);
+        }
+    }
+
+    private static Instantiator fieldInstantiator(Class<?> type, String[] names) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle creator = creator(lookup, type);
+            MethodHandle[] setters = new MethodHandle[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Field field = findField(type, names[i]);
+                setters[i] = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                        .unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            return args -> {
+                Object bean = (Object) creator.invokeExact();
+                for (int i = 0; i < setters.length; i++) {
+                    if (args[i] != null) {
+                        setters[i].invokeExact(bean, args[i]);
+                    }
+                }
+                return bean;
+            };
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(type.getName() + " 의 fields 프로젝션을 만들 수 없습니다", e);
+        }
+    }
+
+    private static Instantiator constructorInstantiator(Class<?> type, Class<?>[] argTypes) {
+        try {
+            Constructor<?> constructor = findConstructor(type, argTypes);
+            Class<?>[] paramTypes = constructor.getParameterTypes();
+            MethodHandle handle = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(paramTypes.length))
+                    .asSpreader(Object[].class, paramTypes.length);
+
+            Object[] defaults = new Object[paramTypes.length];
+            boolean hasPrimitive = false;
+            for (int i = 0; i < paramTypes.length; i++) {
+                if (paramTypes[i].isPrimitive()) {
+                    defaults[i] = MethodHandles.zero(paramTypes[i]).invoke();
+                    hasPrimitive = true;
+                }
+            }
+            if (!hasPrimitive) {
+                return args -> (Object) handle.invokeExact(args);
+            }
+            return args -> {
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] == null && defaults[i] != null) {
+                        args[i] = defaults[i];
+                    }
+                }
+                return (Object) handle.invokeExact(args);
+            };
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(type.getName() + " 의 constructor 프로젝션을 만들 수 없습니다", e);
+        }
+    }
+
+    private static MethodHandle creator(MethodHandles.Lookup lookup, Class<?> type) throws ReflectiveOperationException {
+        return lookup.findConstructor(type, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+    }
+
+    /**
+     * setX(value) 를 호출하는 BiConsumer 를 LambdaMetafactory 로 만든다 (primitive 는 언박싱)
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setterLambda(MethodHandles.Lookup lookup, Class<?> type, String name) throws Throwable {
+        Method setter = findSetter(type, name);
+        Class<?> paramType = setter.getParameterTypes()[0];
+        MethodHandle impl = lookup.unreflect(setter);
+        return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup,
+                        "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        impl,
+                        MethodType.methodType(void.class, type, ClassUtils.resolvePrimitiveIfNecessary(paramType)))
+                .getTarget()
+                .invokeExact();
+    }
+
+    private static Method findSetter(Class<?> type, String name) throws NoSuchMethodException {
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + "." + setterName);
+    }
+
+    private static Field findField(Class<?> type, String name) throws NoSuchFieldException {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+                // 상위 클래스에서 찾는다
+            }
+        }
+        throw new NoSuchFieldException(type.getName() + "." + name);
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, Class<?>[] argTypes) throws NoSuchMethodException {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            Class<?>[] paramTypes = constructor.getParameterTypes();
+            if (paramTypes.length != argTypes.length) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < paramTypes.length && matches; i++) {
+                matches = ClassUtils.resolvePrimitiveIfNecessary(paramTypes[i]).isAssignableFrom(argTypes[i]);
+            }
+            if (matches) {
+                return constructor;
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + Arrays.toString(argTypes));
+    }
+
+    private static String[] namesOf(Expression<?>[] exprs) {
+        String[] names = new String[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            names[i] = nameOf(exprs[i]);
+        }
+        return names;
+    }
+
+    private static String nameOf(Expression<?> expr) {
+        if (expr instanceof Path) {
+            return ((Path<?>) expr).getMetadata().getName();
+        }
+        if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+            return nameOf(((Operation<?>) expr).getArg(1));
+        }
+        throw new IllegalArgumentException("프로퍼티 이름을 알 수 없는 표현식입니다. as(\"이름\") 을 붙여주세요: " + expr);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object>[] newSetters(int size) {
+        return new BiConsumer[size];
+    }
+
+    private static class Projection<T> extends FactoryExpressionBase<T> {
+
+        private final List<Expression<?>> args;
+        private final Instantiator instantiator;
+
+        Projection(Class<? extends T> type, Expression<?>[] args, Instantiator instantiator) {
+            super(type);
+            this.args = Collections.unmodifiableList(Arrays.asList(args.clone()));
+            this.instantiator = instantiator;
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T newInstance(Object... values) {
+            try {
+                return (T) instantiator.newInstance(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Projection)) {
+                return false;
+            }
+            Projection<?> other = (Projection<?>) obj;
+            return getType().equals(other.getType()) && args.equals(other.args) && instantiator == other.instantiator;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getType(), args);
+        }
+    }
+}
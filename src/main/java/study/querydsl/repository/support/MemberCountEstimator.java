@@ -0,0 +1,369 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.MemberWriteListener;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member 테이블의 표본으로 검색 조건의 전체 건수를 추정한다.
+ *
+ * 표본은 백그라운드 스레드가 다시 뽑고, 조회는 다시 뽑는 동안에도 이전 표본으로 바로 답한다.
+ * (표본이 아직 한 번도 없을 때만 첫 표본을 기다린다)
+ * - member / team 이 바뀌면 stale 로 표시하고 min-refresh-interval 간격 안에서 한 번만 다시 뽑는다.
+ * - 바뀐 게 없어도 max-sample-age 가 지나면 다시 뽑는다.
+ *
+ * 표본은 정렬 없이 PK 범위로 뽑는다: [min(id), max(id)] 에서 무작위 시작 id 를 골라 그 뒤로 RANGE_ROWS 건씩 인덱스로 읽는다.
+ * 전체 건수는 H2 테이블 통계(INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE)를 쓰고,
+ * 테이블이 SAMPLE_SIZE 이하로 작으면 전부 읽어서 정확한 값이 된다.
+ * 표본의 단위는 row 가 아니라 범위(cluster)이므로 errorBound 는 범위별 (매칭 건수, row 수)로 구한
+ * ratio estimator 의 분산(cluster sampling)으로 계산한다. 같은 범위의 row 끼리 비슷할수록(id 순으로 넣은 데이터) 커진다.
+ * id 간격이 큰 구간 바로 뒤의 범위가 조금 더 자주 뽑히므로 여전히 근사치다.
+ */
+@Slf4j
+@Component
+public class MemberCountEstimator implements MemberWriteListener, DisposableBean {
+
+    private static final int SAMPLE_SIZE = 10_000;
+    private static final int RANGE_ROWS = 100;
+    private static final int MAX_RANGES = SAMPLE_SIZE / RANGE_ROWS * 3;
+    private static final double Z_95 = 1.96;
+
+    private static final String TABLE_ROWS = "select row_count_estimate from information_schema.tables"
+            + " where table_schema = current_schema and table_name = 'MEMBER'";
+
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final long maxSampleAge;
+    private final long minRefreshInterval;
+    private final ScheduledExecutorService refreshExecutor =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("member-count-sample-"));
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private volatile Sample sample;
+    private volatile boolean stale = true;
+
+    public MemberCountEstimator(EntityManager em,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${querydsl.count-estimate.max-sample-age:5m}") Duration maxSampleAge,
+                                @Value("${querydsl.count-estimate.min-refresh-interval:10s}") Duration minRefreshInterval) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.jdbcTemplate = jdbcTemplate;
+        // 호출한 쪽이 쓰기 트랜잭션이어도 커밋되지 않은 row 가 표본에 들어가지 않도록 따로 읽는다
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.maxSampleAge = maxSampleAge.toNanos();
+        this.minRefreshInterval = minRefreshInterval.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        requestRefresh();
+    }
+
+    public CountEstimate estimate(MemberSearchKey key) {
+        Sample current = sample;
+        if (current == null) {
+            current = firstSample();
+        } else if (stale || System.nanoTime() - current.loadedAt > maxSampleAge) {
+            requestRefresh();
+        }
+        return current.estimate(key, stale);
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public void onMemberWrite() {
+        stale = true;
+        requestRefresh();
+    }
+
+    /**
+     * 표본을 지금 다시 뽑는다 (조회는 끝날 때까지 이전 표본을 쓴다)
+     */
+    public synchronized void refresh() {
+        stale = false; // 읽는 동안 변경이 생기면 다시 stale 이 된다
+        try {
+            sample = readTransaction.execute(status -> load());
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+    }
+
+    /**
+     * 백그라운드 refresh 예약, 이미 예약되어 있으면 합쳐지고 직전 refresh 로부터 min-refresh-interval 뒤에 실행된다
+     */
+    public void requestRefresh() {
+        if (!refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        Sample current = sample;
+        long delay = current == null ? 0 : Math.max(0, current.loadedAt + minRefreshInterval - System.nanoTime());
+        refreshExecutor.schedule(() -> {
+            refreshQueued.set(false);
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("member count sample refresh failed", e);
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private synchronized Sample firstSample() {
+        if (sample == null) {
+            refresh();
+        }
+        return sample;
+    }
+
+    private Sample load() {
+        long loadedAt = System.nanoTime();
+        long tableRows = tableRows();
+
+        List<SampledRow> rows = null;
+        if (tableRows <= SAMPLE_SIZE) {
+            List<Tuple> all = sampleQuery(null, SAMPLE_SIZE + 1);
+            if (all.size() <= SAMPLE_SIZE) {
+                tableRows = all.size(); // 테이블 전체, row 하나가 범위 하나
+                rows = new ArrayList<>(all.size());
+                for (Tuple row : all) {
+                    rows.add(new SampledRow(row, rows.size()));
+                }
+            } else {
+                // 통계가 실제보다 작게 나온 경우
+                tableRows = Math.max(tableRows, all.size());
+            }
+        }
+        if (rows == null) {
+            rows = sampleRanges();
+        }
+
+        int size = rows.size();
+        String[] usernames = new String[size];
+        int[] ages = new int[size];
+        String[] teamNames = new String[size];
+        boolean[] hasTeam = new boolean[size];
+        int[] clusters = new int[size];
+        for (int i = 0; i < size; i++) {
+            Tuple row = rows.get(i).row;
+            usernames[i] = row.get(member.username);
+            ages[i] = row.get(member.age);
+            teamNames[i] = row.get(team.name);
+            hasTeam[i] = row.get(team.id) != null;
+            clusters[i] = rows.get(i).cluster;
+        }
+        return new Sample(tableRows, usernames, ages, teamNames, hasTeam, clusters, loadedAt);
+    }
+
+    private long tableRows() {
+        try {
+            Long rows = jdbcTemplate.queryForObject(TABLE_ROWS, Long.class);
+            if (rows != null) {
+                return rows;
+            }
+        } catch (DataAccessException e) {
+            log.debug("member row count estimate unavailable, counting rows", e);
+        }
+        Long total = queryFactory
+                .select(member.count())
+                .from(member)
+                .fetchOne();
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * 무작위 시작 id 마다 id 순으로 RANGE_ROWS 건, 겹치는 row 는 한 번만 센다 (먼저 뽑힌 범위에 속한다)
+     * 범위 번호는 새 row 를 하나라도 가져온 범위에만 0 부터 차례로 붙인다.
+     */
+    private List<SampledRow> sampleRanges() {
+        Tuple bounds = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne();
+        Long minId = bounds == null ? null : bounds.get(member.id.min());
+        Long maxId = bounds == null ? null : bounds.get(member.id.max());
+        if (minId == null || maxId == null) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, SampledRow> sampled = new TreeMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int clusters = 0;
+        for (int i = 0; i < MAX_RANGES && sampled.size() < SAMPLE_SIZE; i++) {
+            long start = minId + (long) (random.nextDouble() * (maxId - minId + 1));
+            boolean added = false;
+            for (Tuple row : sampleQuery(start, RANGE_ROWS)) {
+                added |= sampled.putIfAbsent(row.get(member.id), new SampledRow(row, clusters)) == null;
+            }
+            if (added) {
+                clusters++;
+            }
+        }
+        return new ArrayList<>(sampled.values());
+    }
+
+    private List<Tuple> sampleQuery(Long startId, int limit) {
+        return queryFactory
+                .select(member.id, member.username, member.age, team.name, team.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(startId == null ? null : member.id.goe(startId))
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch();
+    }
+
+    private static class SampledRow {
+        private final Tuple row;
+        private final int cluster;
+
+        SampledRow(Tuple row, int cluster) {
+            this.row = row;
+            this.cluster = cluster;
+        }
+    }
+
+    @Getter
+    public static class CountEstimate {
+        private final long total;
+        private final long errorBound;
+        private final boolean exact;
+
+        CountEstimate(long total, long errorBound, boolean exact) {
+            this.total = total;
+            this.errorBound = errorBound;
+            this.exact = exact;
+        }
+    }
+
+    static class Sample {
+        private final long tableRows;
+        private final String[] usernames;
+        private final int[] ages;
+        private final String[] teamNames;
+        private final boolean[] hasTeam;
+        private final int[] clusters; // row 가 속한 범위 번호 (0 ~ clusterCount - 1)
+        private final int clusterCount;
+        private final long loadedAt;
+
+        Sample(long tableRows, String[] usernames, int[] ages, String[] teamNames, boolean[] hasTeam,
+               int[] clusters, long loadedAt) {
+            this.tableRows = tableRows;
+            this.usernames = usernames;
+            this.ages = ages;
+            this.teamNames = teamNames;
+            this.hasTeam = hasTeam;
+            this.clusters = clusters;
+            this.clusterCount = Arrays.stream(clusters).max().orElse(-1) + 1;
+            this.loadedAt = loadedAt;
+        }
+
+        CountEstimate estimate(MemberSearchKey key, boolean stale) {
+            int n = ages.length;
+            int matches = 0;
+            int[] clusterMatches = new int[clusterCount];
+            for (int i = 0; i < n; i++) {
+                if (matches(key, i)) {
+                    matches++;
+                    clusterMatches[clusters[i]]++;
+                }
+            }
+
+            if (n == 0 || n >= tableRows) {
+                // 표본 = 테이블 전체
+                return new CountEstimate(matches, 0, !stale);
+            }
+
+            double p = (double) matches / n;
+            long estimate = Math.round(tableRows * p);
+            long errorBound;
+            if (matches == 0) {
+                errorBound = (long) Math.ceil(3.0 * tableRows / n); // rule of three (범위 안의 상관은 모른다)
+            } else if (clusterCount < 2) {
+                errorBound = tableRows; // 분산을 구할 수 없다
+            } else {
+                errorBound = (long) Math.ceil(Z_95 * tableRows * Math.sqrt(ratioVariance(p, clusterMatches, n)));
+            }
+            return new CountEstimate(estimate, errorBound, false);
+        }
+
+        /**
+         * 범위 c 의 row 수 m_c, 매칭 건수 y_c 일 때 p = sum(y_c) / sum(m_c) 의 분산
+         * (1 - f) / (k * mbar^2) * sum((y_c - p * m_c)^2) / (k - 1), f = n / tableRows, mbar = n / k
+         */
+        private double ratioVariance(double p, int[] clusterMatches, int n) {
+            int[] clusterRows = new int[clusterCount];
+            for (int cluster : clusters) {
+                clusterRows[cluster]++;
+            }
+            double sumSquares = 0;
+            for (int c = 0; c < clusterCount; c++) {
+                double residual = clusterMatches[c] - p * clusterRows[c];
+                sumSquares += residual * residual;
+            }
+            double k = clusterCount;
+            double meanRows = n / k;
+            double fpc = 1 - (double) n / tableRows;
+            return fpc * sumSquares / (k - 1) / (k * meanRows * meanRows);
+        }
+
+        /**
+         * MemberSearchTemplates 와 같은 의미 (username eq, teamName contains, age 범위)
+         */
+        private boolean matches(MemberSearchKey key, int i) {
+            if (key.getJoinShape() == MemberSearchKey.JoinShape.INNER && !hasTeam[i]) {
+                return false;
+            }
+            if (key.getUsername() != null && !key.getUsername().equals(usernames[i])) {
+                return false;
+            }
+            if (key.getTeamName() != null && (teamNames[i] == null || !teamNames[i].contains(key.getTeamName()))) {
+                return false;
+            }
+            if (key.getAgeGoe() != null && ages[i] < key.getAgeGoe()) {
+                return false;
+            }
+            return key.getAgeLoe() == null || ages[i] <= key.getAgeLoe();
+        }
+    }
+}
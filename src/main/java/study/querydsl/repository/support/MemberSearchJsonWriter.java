@@ -0,0 +1,234 @@
+package study.querydsl.repository.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.TeamNameIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MemberTeamDto 모양의 검색 결과를 ResultSet 에서 JsonGenerator 로 바로 쓴다.
+ * Hibernate Object[], MemberTeamDto, Jackson getter 탐색을 거치지 않고
+ * 필드 이름은 미리 인코딩한 SerializedString 으로 쓴다.
+ * 팀 이름은 팀 id 별로 한 번만 읽고 인코딩해서 같은 팀의 다음 row 부터는 컬럼을 읽지 않는다.
+ *
+ * 조건 해석은 searchNullEx (MemberSearchTemplates, inner join) 와 같고 나오는 JSON 도
+ * MemberTeamDto 를 Jackson 으로 쓴 것과 같다.
+ *
+ * SQL 도 MemberSearchTemplates 처럼 조건 모양(shape 비트마스크)별로 미리 만들어 둔다.
+ * 팀 id 목록은 BatchedLookups 처럼 2의 제곱수 개로 채워서(마지막 id 반복) IN 절 모양이 log2 가지로만 나오게 한다.
+ */
+@Component
+@Transactional(readOnly = true)
+public class MemberSearchJsonWriter {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_ID = new SerializedString("teamId");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    private static final String[] SQL = new String[MemberSearchTemplates.SHAPES];
+    // [shape][log2(채운 팀 id 개수)], 처음 쓰일 때 만든다
+    private static final String[][] SQL_BY_TEAM_IDS = new String[MemberSearchTemplates.SHAPES][Integer.SIZE];
+
+    static {
+        for (int shape = 0; shape < MemberSearchTemplates.SHAPES; shape++) {
+            SQL[shape] = buildSql(shape, 0);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TeamNameIndex teamNameIndex;
+
+    public MemberSearchJsonWriter(JdbcTemplate jdbcTemplate, TeamNameIndex teamNameIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.teamNameIndex = teamNameIndex;
+    }
+
+    /**
+     * [{...}, {...}] 형식 (List<MemberTeamDto> 와 같다)
+     *
+     * @return 쓴 건수
+     */
+    public long writeArray(MemberSearchCondition condition, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        long count = write(condition, generator, false);
+        generator.writeEndArray();
+        return count;
+    }
+
+    /**
+     * 한 줄에 한 건 (NDJSON)
+     */
+    public long writeLines(MemberSearchCondition condition, JsonGenerator generator) throws IOException {
+        return write(condition, generator, true);
+    }
+
+    private long write(MemberSearchCondition condition, JsonGenerator generator, boolean lines) throws IOException {
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        Set<Long> teamIds = teamNameIndex.findTeamIds(key);
+        if (teamIds != null && teamIds.isEmpty()) {
+            return 0; // 이름이 맞는 팀이 없으면 조회하지 않는다
+        }
+
+        int shape = MemberSearchTemplates.shapeOf(key);
+        int paddedSize = teamIds == null ? 0 : paddedSize(teamIds.size());
+        String sql = sqlOf(shape, paddedSize);
+        RowWriter rowWriter = new RowWriter(generator, lines);
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                bind(ps, shape, key, teamIds, paddedSize);
+                return ps;
+            }, rowWriter::write);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rowWriter.count;
+    }
+
+    /**
+     * @param paddedSize 0 이면 teamName 조건은 LIKE
+     */
+    private static String sqlOf(int shape, int paddedSize) {
+        if (paddedSize == 0 || (shape & MemberSearchTemplates.TEAM_NAME) == 0) {
+            return SQL[shape];
+        }
+        int log2 = Integer.numberOfTrailingZeros(paddedSize);
+        String sql = SQL_BY_TEAM_IDS[shape][log2];
+        if (sql == null) {
+            sql = buildSql(shape, paddedSize);
+            SQL_BY_TEAM_IDS[shape][log2] = sql; // 경쟁해도 같은 문자열
+        }
+        return sql;
+    }
+
+    static int paddedSize(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static String buildSql(int shape, int teamIdCount) {
+        StringBuilder sql = new StringBuilder("select m.member_id, m.username, m.age, t.id, t.name")
+                .append(" from member m join team t on t.id = m.team_id");
+
+        String glue = " where ";
+        if ((shape & MemberSearchTemplates.USERNAME) != 0) {
+            sql.append(glue).append("m.username = ?");
+            glue = " and ";
+        }
+        if ((shape & MemberSearchTemplates.TEAM_NAME) != 0 && teamIdCount > 0) {
+            sql.append(glue).append("t.id in (?");
+            for (int i = 1; i < teamIdCount; i++) {
+                sql.append(", ?");
+            }
+            sql.append(')');
+            glue = " and ";
+        } else if ((shape & MemberSearchTemplates.TEAM_NAME) != 0) {
+            sql.append(glue).append("t.name like ? escape '").append(MemberSearchTemplates.ESCAPE).append("'");
+            glue = " and ";
+        }
+        if ((shape & MemberSearchTemplates.AGE_GOE) != 0) {
+            sql.append(glue).append("m.age >= ?");
+            glue = " and ";
+        }
+        if ((shape & MemberSearchTemplates.AGE_LOE) != 0) {
+            sql.append(glue).append("m.age <= ?");
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement ps, int shape, MemberSearchKey key,
+                             Set<Long> teamIds, int paddedSize) throws SQLException {
+        int index = 1;
+        if ((shape & MemberSearchTemplates.USERNAME) != 0) {
+            ps.setString(index++, key.getUsername());
+        }
+        if ((shape & MemberSearchTemplates.TEAM_NAME) != 0 && paddedSize > 0) {
+            long last = 0;
+            for (Long teamId : teamIds) {
+                ps.setLong(index++, teamId);
+                last = teamId;
+            }
+            for (int i = teamIds.size(); i < paddedSize; i++) {
+                ps.setLong(index++, last);
+            }
+        } else if ((shape & MemberSearchTemplates.TEAM_NAME) != 0) {
+            ps.setString(index++, "%" + MemberSearchTemplates.escapeLike(key.getTeamName()) + "%");
+        }
+        if ((shape & MemberSearchTemplates.AGE_GOE) != 0) {
+            ps.setInt(index++, key.getAgeGoe());
+        }
+        if ((shape & MemberSearchTemplates.AGE_LOE) != 0) {
+            ps.setInt(index, key.getAgeLoe());
+        }
+    }
+
+    private static class RowWriter {
+
+        private final JsonGenerator generator;
+        private final boolean lines;
+        private final Map<Long, SerializedString> teamNames = new HashMap<>();
+        private long count;
+
+        RowWriter(JsonGenerator generator, boolean lines) {
+            this.generator = generator;
+            this.lines = lines;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeFieldName(MEMBER_ID);
+                generator.writeNumber(rs.getLong(1));
+                generator.writeFieldName(USERNAME);
+                String username = rs.getString(2);
+                if (username == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(username);
+                }
+                generator.writeFieldName(AGE);
+                generator.writeNumber(rs.getInt(3));
+
+                long teamId = rs.getLong(4);
+                generator.writeFieldName(TEAM_ID);
+                generator.writeNumber(teamId); // inner join 이므로 팀이 항상 있다
+                generator.writeFieldName(TEAM_NAME);
+                SerializedString teamName = teamNames.get(teamId);
+                if (teamName == null && !teamNames.containsKey(teamId)) {
+                    String name = rs.getString(5);
+                    teamName = name == null ? null : new SerializedString(name);
+                    teamNames.put(teamId, teamName);
+                }
+                if (teamName == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeString(teamName);
+                }
+                generator.writeEndObject();
+                if (lines) {
+                    generator.writeRaw('\n');
+                }
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package study.querydsl.repository.support;
+
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.cache.MemberSearchKey;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 조건 모양(shape)별로 미리 만들어 둔 JPQL
+ * 조건 4개(username, teamName, ageGoe, ageLoe)의 유무로 16가지 모양이 나오고 join 모양(inner / left)별로 따로 둔다.
+ * 요청마다 Querydsl 표현식 트리를 만들고 JPQL 로 직렬화하는 대신 파라미터만 바인딩한다.
+ * JPQL 문자열이 항상 같으므로 Hibernate query plan cache 도 항상 hit 한다.
+ * teamName 조건은 LIKE 대신 TeamNameIndex 로 찾은 팀 id 목록(team.id in)으로도 만들 수 있다.
+ * keyset 페이징(MemberCursor)용은 inner join 만 정렬 키 / 첫 페이지 여부별로 따로 둔다.
+ */
+public final class MemberSearchTemplates {
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+    public static final int SHAPES = 16;
+
+    /**
+     * Querydsl JPQLTemplates 의 like escape 문자와 같게 맞춘다.
+     */
+    static final char ESCAPE = '!';
+
+    private static final String[][] CONTENT = new String[MemberSearchKey.JoinShape.values().length][SHAPES];
+    private static final String[][] COUNT = new String[MemberSearchKey.JoinShape.values().length][SHAPES];
+    private static final String[][] CONTENT_BY_TEAM_IDS = new String[MemberSearchKey.JoinShape.values().length][SHAPES];
+    private static final String[][] COUNT_BY_TEAM_IDS = new String[MemberSearchKey.JoinShape.values().length][SHAPES];
+    // [정렬 키 * 2 + (첫 페이지가 아니면 1)][shape]
+    private static final String[][] CURSOR = new String[MemberCursor.SortKey.values().length * 2][SHAPES];
+    private static final String[][] CURSOR_BY_TEAM_IDS = new String[MemberCursor.SortKey.values().length * 2][SHAPES];
+
+    static {
+        for (MemberSearchKey.JoinShape joinShape : MemberSearchKey.JoinShape.values()) {
+            String content = "select new " + MemberTeamDto.class.getName() + "(m.id, m.username, m.age, t.id, t.name)";
+            String count = "select count(m)";
+            for (int shape = 0; shape < SHAPES; shape++) {
+                CONTENT[joinShape.ordinal()][shape] = build(shape, joinShape, content, false);
+                COUNT[joinShape.ordinal()][shape] = build(shape, joinShape, count, false);
+                CONTENT_BY_TEAM_IDS[joinShape.ordinal()][shape] = build(shape, joinShape, content, true);
+                COUNT_BY_TEAM_IDS[joinShape.ordinal()][shape] = build(shape, joinShape, count, true);
+            }
+        }
+        String content = "select new " + MemberTeamDto.class.getName() + "(m.id, m.username, m.age, t.id, t.name)";
+        for (MemberCursor.SortKey sortKey : MemberCursor.SortKey.values()) {
+            String after = sortKey == MemberCursor.SortKey.AGE
+                    ? "(m.age > :cursorAge or (m.age = :cursorAge and m.id > :cursorId))"
+                    : "m.id > :cursorId";
+            String orderBy = sortKey == MemberCursor.SortKey.AGE ? " order by m.age asc, m.id asc" : " order by m.id asc";
+            for (int shape = 0; shape < SHAPES; shape++) {
+                for (int afterIndex = 0; afterIndex < 2; afterIndex++) {
+                    String cursorCond = afterIndex == 0 ? null : after;
+                    int index = sortKey.ordinal() * 2 + afterIndex;
+                    CURSOR[index][shape] = build(shape, MemberSearchKey.JoinShape.INNER, content, false, cursorCond, orderBy);
+                    CURSOR_BY_TEAM_IDS[index][shape] = build(shape, MemberSearchKey.JoinShape.INNER, content, true, cursorCond, orderBy);
+                }
+            }
+        }
+    }
+
+    private MemberSearchTemplates() {
+    }
+
+    public static int shapeOf(MemberSearchKey key) {
+        return shapeOf(key.getUsername() != null, key.getTeamName() != null, key.getAgeGoe() != null, key.getAgeLoe() != null);
+    }
+
+    public static int shapeOf(MemberSearchCondition condition) {
+        return shapeOf(hasText(condition.getUsername()), hasText(condition.getTeamName()),
+                condition.getAgeGoe() != null, condition.getAgeLoe() != null);
+    }
+
+    private static int shapeOf(boolean username, boolean teamName, boolean ageGoe, boolean ageLoe) {
+        return (username ? USERNAME : 0)
+                | (teamName ? TEAM_NAME : 0)
+                | (ageGoe ? AGE_GOE : 0)
+                | (ageLoe ? AGE_LOE : 0);
+    }
+
+    public static String contentJpql(int shape, MemberSearchKey.JoinShape joinShape) {
+        return CONTENT[joinShape.ordinal()][shape];
+    }
+
+    public static String countJpql(int shape, MemberSearchKey.JoinShape joinShape) {
+        return COUNT[joinShape.ordinal()][shape];
+    }
+
+    public static TypedQuery<MemberTeamDto> createQuery(EntityManager em, MemberSearchKey key) {
+        return createQuery(em, key, null);
+    }
+
+    /**
+     * @param teamIds teamName 조건 대신 쓸 팀 id 목록, null 이면 LIKE 로 조회 (비어 있으면 안 된다)
+     */
+    public static TypedQuery<MemberTeamDto> createQuery(EntityManager em, MemberSearchKey key, Collection<Long> teamIds) {
+        int shape = shapeOf(key);
+        String jpql = (teamIds != null ? CONTENT_BY_TEAM_IDS : CONTENT)[key.getJoinShape().ordinal()][shape];
+        return bind(em.createQuery(jpql, MemberTeamDto.class), shape, key, teamIds);
+    }
+
+    public static TypedQuery<Long> createCountQuery(EntityManager em, MemberSearchKey key) {
+        return createCountQuery(em, key, null);
+    }
+
+    public static TypedQuery<Long> createCountQuery(EntityManager em, MemberSearchKey key, Collection<Long> teamIds) {
+        int shape = shapeOf(key);
+        String jpql = (teamIds != null ? COUNT_BY_TEAM_IDS : COUNT)[key.getJoinShape().ordinal()][shape];
+        return bind(em.createQuery(jpql, Long.class), shape, key, teamIds);
+    }
+
+    /**
+     * cursor 다음 행부터 cursor 의 정렬 키 순서로 (inner join), 건수 제한은 호출하는 쪽에서 setMaxResults
+     */
+    public static TypedQuery<MemberTeamDto> createCursorQuery(EntityManager em, MemberSearchKey key,
+                                                              Collection<Long> teamIds, MemberCursor cursor) {
+        Assert.isTrue(key.getJoinShape() == MemberSearchKey.JoinShape.INNER, "cursor query is inner join only!");
+        int shape = shapeOf(key);
+        int index = cursor.getSortKey().ordinal() * 2 + (cursor.isFirst() ? 0 : 1);
+        String jpql = (teamIds != null ? CURSOR_BY_TEAM_IDS : CURSOR)[index][shape];
+        TypedQuery<MemberTeamDto> query = bind(em.createQuery(jpql, MemberTeamDto.class), shape, key, teamIds);
+        if (!cursor.isFirst()) {
+            query.setParameter("cursorId", cursor.getMemberId());
+            if (cursor.getSortKey() == MemberCursor.SortKey.AGE) {
+                query.setParameter("cursorAge", cursor.getAge());
+            }
+        }
+        return query;
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, int shape, MemberSearchKey key, Collection<Long> teamIds) {
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", key.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            if (teamIds != null) {
+                query.setParameter("teamIds", teamIds);
+            } else {
+                query.setParameter("teamName", "%" + escapeLike(key.getTeamName()) + "%");
+            }
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", key.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", key.getAgeLoe());
+        }
+        return query;
+    }
+
+    private static String build(int shape, MemberSearchKey.JoinShape joinShape, String select, boolean byTeamIds) {
+        return build(shape, joinShape, select, byTeamIds, null, "");
+    }
+
+    private static String build(int shape, MemberSearchKey.JoinShape joinShape, String select, boolean byTeamIds,
+                                String extraCond, String suffix) {
+        StringBuilder jpql = new StringBuilder(select)
+                .append(" from Member m ")
+                .append(joinShape == MemberSearchKey.JoinShape.LEFT ? "left join" : "join")
+                .append(" m.team t");
+
+        String glue = " where ";
+        if ((shape & USERNAME) != 0) {
+            jpql.append(glue).append("m.username = :username");
+            glue = " and ";
+        }
+        if ((shape & TEAM_NAME) != 0 && byTeamIds) {
+            jpql.append(glue).append("t.id in :teamIds");
+            glue = " and ";
+        } else if ((shape & TEAM_NAME) != 0) {
+            jpql.append(glue).append("t.name like :teamName escape '").append(ESCAPE).append("'");
+            glue = " and ";
+        }
+        if ((shape & AGE_GOE) != 0) {
+            jpql.append(glue).append("m.age >= :ageGoe");
+            glue = " and ";
+        }
+        if ((shape & AGE_LOE) != 0) {
+            jpql.append(glue).append("m.age <= :ageLoe");
+            glue = " and ";
+        }
+        if (extraCond != null) {
+            jpql.append(glue).append(extraCond);
+        }
+        return jpql.append(suffix).toString();
+    }
+
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ESCAPE || c == '%' || c == '_') {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
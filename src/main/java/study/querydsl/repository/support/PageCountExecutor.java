@@ -0,0 +1,190 @@
+package study.querydsl.repository.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * content 쿼리와 count 쿼리를 동시에 실행하는 페이징
+ * count 는 별도 스레드에서 자기 커넥션, 자기 트랜잭션(readOnly, REQUIRES_NEW)으로 실행된다.
+ * count 가 필요 없다고 판단되면(PageableExecutionUtils) 실행 중인 count 는 JDBC 에서 취소한다 (Session.cancelQuery).
+ *
+ * 요청 하나가 커넥션 두 개를 쓰므로 동시에 도는 count 는 POOL_SIZE 개까지만 두고,
+ * 그 이상이거나 커넥션 풀에 남은 커넥션이 없으면 호출한 스레드에서 순차로 센다 (커넥션을 기다리다 풀이 말라버리지 않게).
+ */
+@Slf4j
+@Component
+public class PageCountExecutor implements DisposableBean {
+
+    private static final int POOL_SIZE = 4;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore permits = new Semaphore(POOL_SIZE);
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+    private final DataSource dataSource;
+
+    public PageCountExecutor(PlatformTransactionManager transactionManager,
+                             EntityManager em,
+                             DataSource dataSource,
+                             @Value("${querydsl.page-count.timeout:10s}") Duration timeout) {
+        this.em = em;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // 트랜잭션 timeout 은 그 안에서 만든 쿼리의 JDBC query timeout 으로 걸린다
+        this.transactionTemplate.setTimeout((int) Math.max(1, timeout.getSeconds()));
+
+        // permits 로 POOL_SIZE 개까지만 넣으므로 큐에 쌓이지 않는다
+        this.executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(POOL_SIZE),
+                new CustomizableThreadFactory("page-count-"));
+    }
+
+    public <T> Page<T> getPage(Supplier<List<T>> contentQuery, Pageable pageable, LongSupplier countQuery) {
+        // 쓰기 트랜잭션 안에서는 다른 커넥션이 아직 커밋되지 않은 변경을 볼 수 없으므로 순차 실행
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+        if (!hasIdleConnection() || !permits.tryAcquire()) {
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+
+        CountTask task = new CountTask(countQuery);
+        Future<Long> total;
+        try {
+            total = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+        try {
+            List<T> content = contentQuery.get();
+            return PageableExecutionUtils.getPage(content, pageable, () -> await(total));
+        } finally {
+            if (!total.isDone()) {
+                task.cancel();
+                total.cancel(true);
+            }
+        }
+    }
+
+    private boolean hasIdleConnection() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return true;
+            }
+            HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            return pool == null || pool.getIdleConnections() > 0; // 아직 풀이 시작되지 않음
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private long await(Future<Long> total) {
+        try {
+            return total.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for count query", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Count query was cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Count query failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * count 를 실행하는 동안 그 트랜잭션의 Session 을 들고 있다가 cancel 에서 실행 중인 JDBC Statement 를 취소한다.
+     * 시작 전에 취소되면 실행하지 않고 permit 만 돌려준다 (started 를 먼저 잡은 쪽이 permit 을 돌려준다).
+     */
+    private class CountTask implements Callable<Long> {
+        private final LongSupplier countQuery;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Session session;
+        private volatile boolean cancelled;
+
+        CountTask(LongSupplier countQuery) {
+            this.countQuery = countQuery;
+        }
+
+        @Override
+        public Long call() {
+            if (!started.compareAndSet(false, true)) {
+                throw new CancellationException();
+            }
+            try {
+                return transactionTemplate.execute(status -> {
+                    session = em.unwrap(Session.class);
+                    try {
+                        if (cancelled) {
+                            throw new CancellationException();
+                        }
+                        return countQuery.getAsLong();
+                    } finally {
+                        session = null;
+                    }
+                });
+            } finally {
+                permits.release();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (started.compareAndSet(false, true)) {
+                permits.release();
+                return;
+            }
+            Session current = session;
+            if (current == null) {
+                return;
+            }
+            try {
+                current.cancelQuery();
+            } catch (RuntimeException e) {
+                log.debug("count query cancel failed", e); // 그 사이 끝나서 닫힌 세션
+            }
+        }
+    }
+}
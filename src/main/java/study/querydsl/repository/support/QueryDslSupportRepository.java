@@ -2,24 +2,41 @@ package study.querydsl.repository.support;
 
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Repository
 public abstract class QueryDslSupportRepository {
@@ -27,6 +44,10 @@ public abstract class QueryDslSupportRepository {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private PageCountExecutor pageCountExecutor;
+    private EntityPath entityPath;
+    private NumberPath<Long> idPath;
+    private TransactionTemplate chunkTransaction;
 
     public QueryDslSupportRepository(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -41,16 +62,34 @@ public abstract class QueryDslSupportRepository {
         SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
         EntityPath path = resolver.createPath(entityInformation.getJavaType());
         this.entityManager = entityManager;
+        this.entityPath = path;
+        this.idPath = new PathBuilder<>(path.getType(), path.getMetadata())
+                .getNumber(entityInformation.getIdAttribute().getName(), Long.class);
         this.querydsl = new Querydsl(entityManager, new
                 PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired
+    public void setPageCountExecutor(PageCountExecutor pageCountExecutor) {
+        Assert.notNull(pageCountExecutor, "PageCountExecutor must not be null!");
+        this.pageCountExecutor = pageCountExecutor;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        Assert.notNull(transactionManager, "PlatformTransactionManager must not be null!");
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(pageCountExecutor, "PageCountExecutor must not be null!");
+        Assert.notNull(chunkTransaction, "PlatformTransactionManager must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -91,5 +130,184 @@ public abstract class QueryDslSupportRepository {
 
         return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
     }
-}
 
+    /**
+     * 2단계 페이징 (엔티티)
+     * filterQuery 의 from / join / where 에 페이징, 정렬을 붙여 id 만 읽고, 그 id 들로 엔티티를 IN 조회해서 id 순서대로 맞춘다.
+     * OFFSET 으로 건너뛰는 row 는 id 만 만들면 되므로 (조건 / 정렬 컬럼이 인덱스에 있으면 인덱스만 읽는다) 뒤쪽 페이지일수록 유리하다.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> Page<T> applyIdPagination(Pageable pageable,
+                                            Function<JPAQueryFactory, JPAQuery> filterQuery) {
+        PersistenceUnitUtil unitUtil = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+        return applyIdPagination(pageable, filterQuery,
+                ids -> (List<T>) getQueryFactory().selectFrom(entityPath).where(idPath.in(ids)).fetch(),
+                entity -> (Long) unitUtil.getIdentifier(entity));
+    }
+
+    /**
+     * 2단계 페이징 (DTO 등 임의의 row)
+     *
+     * @param fetchByIds id 목록(최대 BatchedLookups.BATCH_SIZE 개)으로 row 를 조회, 순서는 상관없다
+     * @param idOf       row 의 엔티티 id
+     */
+    protected <T> Page<T> applyIdPagination(Pageable pageable,
+                                            Function<JPAQueryFactory, JPAQuery> filterQuery,
+                                            Function<List<Long>, List<T>> fetchByIds,
+                                            Function<? super T, Long> idOf) {
+
+        JPAQuery<Long> idQuery = filterQuery.apply(getQueryFactory()).select(idPath);
+        List<Long> ids = getQuerydsl().applyPagination(pageable, idQuery).fetch();
+        List<T> content = BatchedLookups.fetchInOrder(ids, fetchByIds, idOf);
+        return PageableExecutionUtils.getPage(content, pageable, () -> filterQuery.apply(getQueryFactory()).fetchCount());
+    }
+
+    /**
+     * count 쿼리 없이 pageSize + 1 건을 조회해서 다음 페이지 존재 여부만 판단
+     */
+    protected <T> Slice<T> applySlicePagination(Pageable pageable,
+                                                Function<JPAQueryFactory, JPAQuery> contentQuery) {
+
+        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+        jpaQuery.offset(pageable.getOffset());
+        jpaQuery.limit(pageable.getPageSize() + 1);
+        List<T> content = getQuerydsl().applySorting(pageable.getSort(), jpaQuery).fetch();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, pageable.getPageSize()));
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * content 쿼리와 count 쿼리를 동시에 실행 (count 는 별도 커넥션)
+     */
+    protected <T> Page<T> applyPaginationConcurrently(Pageable pageable,
+                                                      Function<JPAQueryFactory, JPAQuery> contentQuery,
+                                                      Function<JPAQueryFactory, JPAQuery> countQuery) {
+
+        return pageCountExecutor.getPage(
+                () -> getQuerydsl().applyPagination(pageable, contentQuery.apply(getQueryFactory())).fetch(),
+                pageable,
+                () -> countQuery.apply(getQueryFactory()).fetchCount());
+    }
+
+    /**
+     * predicate 에 해당하는 row 를 id 순서로 chunkSize 건씩 나눠 update 한다.
+     * predicate 는 bulk update 와 같은 제약(조인 없이 엔티티 자신의 속성만)을 따른다.
+     */
+    protected BulkMutationProgress bulkUpdate(Predicate predicate,
+                                              Consumer<JPAUpdateClause> assignments,
+                                              BulkMutationOptions options) {
+        return mutateInChunks(predicate, options, idRange -> {
+            JPAUpdateClause update = getQueryFactory().update(entityPath).where(predicate, idRange);
+            assignments.accept(update);
+            return update.execute();
+        });
+    }
+
+    /**
+     * predicate 에 해당하는 row 를 id 순서로 chunkSize 건씩 나눠 delete 한다.
+     */
+    protected BulkMutationProgress bulkDelete(Predicate predicate, BulkMutationOptions options) {
+        return mutateInChunks(predicate, options,
+                idRange -> getQueryFactory().delete(entityPath).where(predicate, idRange).execute());
+    }
+
+    /**
+     * chunk 마다 다음 chunkSize 개의 id 를 찾고, 그 id 범위로 제한한 bulk 연산을 별도 트랜잭션(REQUIRES_NEW)으로 커밋한다.
+     * 한 문장이 테이블 전체에 lock 을 잡지 않고, 중간에 실패해도 이미 커밋된 chunk 는 남는다.
+     *
+     * 영속성 컨텍스트는 clear 하지 않고 바뀐 id 의 엔티티만 detach 하므로, 그 엔티티의 flush 되지 않은 변경은 버려진다.
+     * chunk 트랜잭션이 호출한 쪽 트랜잭션의 lock 을 기다리게 되므로 쓰기 트랜잭션 안에서는 호출할 수 없다.
+     */
+    private BulkMutationProgress mutateInChunks(Predicate predicate,
+                                                BulkMutationOptions options,
+                                                ToLongFunction<Predicate> mutation) {
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive()
+                        || TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                "chunk 단위 bulk 연산은 쓰기 트랜잭션 밖에서 호출해야 합니다");
+        Assert.isTrue(options.getChunkSize() > 0, "chunkSize must be positive!");
+
+        long start = System.nanoTime();
+        BulkMutationProgress progress = new BulkMutationProgress(0, 0, null, 0);
+        while (true) {
+            Long after = progress.getLastId();
+            Chunk chunk = chunkTransaction.execute(status -> {
+                List<Long> ids = getQueryFactory()
+                        .select(idPath)
+                        .from(entityPath)
+                        .where(predicate, after == null ? null : idPath.gt(after))
+                        .orderBy(idPath.asc())
+                        .limit(options.getChunkSize())
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                long affected = mutation.applyAsLong(idPath.between(ids.get(0), ids.get(ids.size() - 1)));
+                return new Chunk(ids, affected);
+            });
+            if (chunk == null) {
+                return progress;
+            }
+
+            detachManaged(chunk.ids);
+            progress = new BulkMutationProgress(progress.getChunks() + 1,
+                    progress.getAffectedRows() + chunk.affected,
+                    chunk.ids.get(chunk.ids.size() - 1),
+                    System.nanoTime() - start);
+            if (options.getProgressListener() != null) {
+                options.getProgressListener().accept(progress);
+            }
+            if (chunk.ids.size() < options.getChunkSize() || !throttle(options)) {
+                return progress;
+            }
+        }
+    }
+
+    /**
+     * 호출한 쪽 영속성 컨텍스트(트랜잭션 또는 open-in-view)에 올라와 있는 엔티티 중 ids 에 해당하는 것만 detach
+     */
+    private void detachManaged(List<Long> ids) {
+        EntityManager current = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManager.getEntityManagerFactory());
+        if (current == null) {
+            return; // 묶인 영속성 컨텍스트가 없으면 관리 중인 엔티티도 없다
+        }
+        SessionImplementor session = current.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(domainClass);
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+        for (Long id : ids) {
+            Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity != null) {
+                current.detach(entity);
+            }
+        }
+    }
+
+    /**
+     * @return 인터럽트되면 false (이미 커밋된 chunk 까지만 반영하고 멈춘다)
+     */
+    private boolean throttle(BulkMutationOptions options) {
+        if (options.getThrottle().isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(options.getThrottle().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class Chunk {
+        private final List<Long> ids;
+        private final long affected;
+
+        Chunk(List<Long> ids, long affected) {
+            this.ids = ids;
+            this.affected = affected;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 요청(또는 테스트) 단위와 트랜잭션 단위로 실행된 SQL 수를 센다.
+ * - 전체 SQL 수가 max-statements 를 넘거나
+ * - 같은 모양의 SQL 이 max-repeats 번을 넘게 반복되면 (lazy 로딩 N+1 의심)
+ * mode=log 이면 범위가 끝날 때 경고 로그를 남기고, mode=reject 이면 넘는 순간 예외로 막는다.
+ *
+ * 다른 스레드에서 실행된 SQL (PageCountExecutor 의 count 등)은 요청 범위에 잡히지 않는다.
+ */
+@Slf4j
+@Component
+public class SqlStatementBudget implements StatementInspector {
+
+    public enum Mode {LOG, REJECT}
+
+    /**
+     * IN (?, ?, ?) 처럼 개수만 다른 파라미터 목록은 같은 모양으로 본다
+     */
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final int maxRepeats;
+    private final Mode mode;
+
+    public SqlStatementBudget(@Value("${querydsl.statement-budget.enabled:true}") boolean enabled,
+                              @Value("${querydsl.statement-budget.max-statements:50}") int maxStatements,
+                              @Value("${querydsl.statement-budget.max-repeats:10}") int maxRepeats,
+                              @Value("${querydsl.statement-budget.mode:LOG}") Mode mode) {
+        this.enabled = enabled;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+        this.mode = mode;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (!enabled) {
+            return sql;
+        }
+        Scope scope = CURRENT.get();
+        Scope transactionScope = transactionScope();
+        if (scope != null || transactionScope != null) {
+            String shape = PARAMETER_LIST.matcher(sql).replaceAll("?");
+            if (scope != null) {
+                scope.record(shape);
+            }
+            if (transactionScope != null) {
+                transactionScope.record(shape);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * 현재 스레드에서 새 범위를 시작한다. 반드시 close 해야 한다 (try-with-resources).
+     */
+    public Scope open(String name) {
+        Scope scope = new Scope(name, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    private Scope transactionScope() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionScope) {
+                return ((TransactionScope) synchronization).scope;
+            }
+        }
+        TransactionScope transactionScope = new TransactionScope(new Scope("transaction", null));
+        TransactionSynchronizationManager.registerSynchronization(transactionScope);
+        return transactionScope.scope;
+    }
+
+    public class Scope implements AutoCloseable {
+        private final String name;
+        private final Scope parent;
+        private final Map<String, Integer> repeats = new HashMap<>();
+        private int statements;
+
+        Scope(String name, Scope parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        private void record(String shape) {
+            statements++;
+            int count = repeats.merge(shape, 1, Integer::sum);
+            if (mode == Mode.REJECT && statements > maxStatements) {
+                throw new StatementBudgetExceededException(
+                        name + ": SQL " + statements + "건으로 허용치 " + maxStatements + "건을 넘었습니다");
+            }
+            if (mode == Mode.REJECT && count > maxRepeats) {
+                throw new StatementBudgetExceededException(
+                        name + ": 같은 SQL 이 " + count + "번 반복됩니다 (N+1 의심): " + shape);
+            }
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return 가장 많이 반복된 SQL 의 실행 횟수
+         */
+        public int getMaxRepeats() {
+            int max = 0;
+            for (int count : repeats.values()) {
+                max = Math.max(max, count);
+            }
+            return max;
+        }
+
+        public Map<String, Integer> getRepeats() {
+            return Collections.unmodifiableMap(repeats);
+        }
+
+        void report() {
+            if (statements > maxStatements) {
+                log.warn("{}: SQL {}건으로 허용치 {}건을 넘었습니다", name, statements, maxStatements);
+            }
+            repeats.forEach((shape, count) -> {
+                if (count > maxRepeats) {
+                    log.warn("{}: 같은 SQL 이 {}번 반복됩니다 (N+1 의심): {}", name, count, shape);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+            report();
+        }
+    }
+
+    private static class TransactionScope implements TransactionSynchronization {
+        private final Scope scope;
+
+        TransactionScope(Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            scope.report();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 실행된 SQL 을 가볍게 추적한다 (TracingDataSource 가 호출)
+ * - sampleRate 건 중 1건만 로그로 남긴다 (0 이면 로그 없음)
+ * - slowThreshold 이상 걸린 SQL 은 바인딩 값과 함께 항상 고정 크기 링 버퍼에 남긴다 (lock-free, 오래된 것부터 덮어씀)
+ * 로그도 느린 SQL 도 아니면 바인딩 값을 문자열로 만들지 않는다.
+ */
+@Slf4j
+public class SqlTracer {
+
+    private static final int MAX_BIND_LENGTH = 200;
+
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final AtomicReferenceArray<SlowStatement> slowStatements;
+    private final int mask;
+    private final AtomicLong slowSequence = new AtomicLong();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+
+    public SqlTracer(int sampleRate, Duration slowThreshold, int bufferSize) {
+        int capacity = Integer.highestOneBit(Math.max(1, bufferSize - 1)) << 1; // 2의 거듭제곱으로 올림
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowStatements = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @param binds 파라미터 인덱스 순서의 바인딩 값 (없으면 null), 호출 후 재사용될 수 있으므로 보관하지 않는다
+     */
+    public void record(String sql, Object[] binds, int bindCount, int batchSize, long elapsedNanos) {
+        executed.increment();
+        boolean sample = sampleRate > 0 && ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        if (!sample && !slow) {
+            return;
+        }
+
+        List<String> bindValues = format(binds, bindCount);
+        if (sample) {
+            sampled.increment();
+            log.info("[{}us{}] {} {}", elapsedNanos / 1_000, batchSize > 0 ? " batch=" + batchSize : "", sql, bindValues);
+        }
+        if (slow) {
+            long sequence = slowSequence.getAndIncrement();
+            slowStatements.set((int) (sequence & mask), new SlowStatement(sequence, System.currentTimeMillis(),
+                    Thread.currentThread().getName(), sql, bindValues, batchSize, elapsedNanos / 1_000));
+        }
+    }
+
+    /**
+     * @return 링 버퍼에 남아 있는 느린 SQL (오래된 순)
+     */
+    public List<SlowStatement> slowStatements() {
+        long end = slowSequence.get();
+        long start = Math.max(0, end - slowStatements.length());
+        List<SlowStatement> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            SlowStatement statement = slowStatements.get((int) (sequence & mask));
+            // 읽는 동안 덮어쓰였거나 아직 기록 중인 칸은 건너뛴다
+            if (statement != null && statement.getSequence() == sequence) {
+                result.add(statement);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slowStatements.length(); i++) {
+            slowStatements.set(i, null);
+        }
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    public long getSlow() {
+        return slowSequence.get();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public Duration getSlowThreshold() {
+        return Duration.ofNanos(slowThresholdNanos);
+    }
+
+    private static List<String> format(Object[] binds, int bindCount) {
+        if (binds == null || bindCount == 0) {
+            return Collections.emptyList();
+        }
+        String[] values = new String[bindCount];
+        for (int i = 0; i < bindCount; i++) {
+            String value = binds[i] instanceof byte[] ? "byte[" + ((byte[]) binds[i]).length + "]" : String.valueOf(binds[i]);
+            values[i] = value.length() > MAX_BIND_LENGTH ? value.substring(0, MAX_BIND_LENGTH) + "..." : value;
+        }
+        return Arrays.asList(values);
+    }
+
+    @Getter
+    public static class SlowStatement {
+        private final long sequence;
+        private final long timestamp;
+        private final String thread;
+        private final String sql;
+        private final List<String> binds;
+        private final int batchSize;
+        private final long elapsedMicros;
+
+        SlowStatement(long sequence, long timestamp, String thread, String sql, List<String> binds, int batchSize, long elapsedMicros) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.thread = thread;
+            this.sql = sql;
+            this.binds = binds;
+            this.batchSize = batchSize;
+            this.elapsedMicros = elapsedMicros;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+/**
+ * SqlStatementBudget 의 mode=reject 에서 허용치를 넘는 SQL 을 실행하려고 할 때
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.repository.support;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connection / Statement 를 감싸서 SQL 실행 시간과 바인딩 값을 SqlTracer 에 넘긴다.
+ * 실행 시간은 execute* 호출 시간이다 (ResultSet 을 읽는 시간은 포함하지 않는다).
+ *
+ * 리플렉션 없이 직접 위임하는 래퍼(TracingConnection, TracingStatement, TracingPreparedStatement)라
+ * 호출당 비용은 메서드 호출 하나와 바인딩 값 저장 정도여서 기본으로 켜 둔다 (querydsl.sql-trace.enabled).
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    private final SqlTracer sqlTracer;
+
+    public TracingDataSource(DataSource target, SqlTracer sqlTracer) {
+        super(target);
+        this.sqlTracer = sqlTracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new TracingConnection(obtainTargetDataSource().getConnection(), sqlTracer);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new TracingConnection(obtainTargetDataSource().getConnection(username, password), sqlTracer);
+    }
+}
@@ -0,0 +1,389 @@
+package study.querydsl.repository.support;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * execute* 시간과 바인딩 값을 SqlTracer 에 넘기는 Statement (TracingDataSource)
+ * 리플렉션 없이 직접 위임하고, 추적과 관계없는 호출은 그대로 넘긴다.
+ */
+class TracingStatement<S extends Statement> implements Statement {
+
+    protected final S target;
+    private final Connection connection;
+    private final SqlTracer sqlTracer;
+    private final String preparedSql;
+    private Object[] binds;
+    private int bindCount;
+    protected int batchSize;
+
+    TracingStatement(S target, Connection connection, SqlTracer sqlTracer, String preparedSql) {
+        this.target = target;
+        this.connection = connection;
+        this.sqlTracer = sqlTracer;
+        this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeQuery(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeUpdate(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        target.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return target.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        target.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return target.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        target.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        target.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return target.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        target.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        target.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        target.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.execute(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return target.getResultSet();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return target.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return target.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        target.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return target.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        target.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return target.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return target.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return target.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        batchSize++;
+        target.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        target.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeBatch();
+        } finally {
+            record(null, start);
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return target.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return target.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeUpdate(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeUpdate(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeUpdate(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.execute(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.execute(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.execute(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return target.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        target.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return target.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        target.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return target.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return target.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        target.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return target.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeLargeBatch();
+        } finally {
+            record(null, start);
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeLargeUpdate(sql);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeLargeUpdate(sql, autoGeneratedKeys);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeLargeUpdate(sql, columnIndexes);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.executeLargeUpdate(sql, columnNames);
+        } finally {
+            record(sql, start);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    /**
+     * @param sql null 이면 prepare 할 때의 SQL
+     */
+    protected void record(String sql, long start) {
+        sqlTracer.record(sql != null ? sql : preparedSql, binds, bindCount, batchSize, System.nanoTime() - start);
+    }
+
+    protected void bind(int index, Object value) {
+        if (binds == null) {
+            binds = new Object[Math.max(8, index)];
+        } else if (index > binds.length) {
+            binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+        }
+        binds[index - 1] = value;
+        bindCount = Math.max(bindCount, index);
+    }
+
+    protected void clearBinds() {
+        bindCount = 0;
+    }
+}
@@ -0,0 +1,173 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 in-memory H2 인스턴스 여러 개를 primary / replica 로 두고 DATABASE() 로 어디로 갔는지 확인한다.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    @Test
+    public void routingTest() throws Exception {
+        //given
+        DataSource dataSource = routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, Duration.ZERO, "replica_a", "replica_b");
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        TransactionTemplate read = readOnly(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String written = write.execute(status -> database(jdbcTemplate));
+        Set<String> read1 = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            read1.add(read.execute(status -> database(jdbcTemplate)));
+        }
+        String outside = database(jdbcTemplate); // 트랜잭션 밖
+
+        //then
+        assertThat(written).isEqualToIgnoringCase("primary_db");
+        assertThat(outside).isEqualToIgnoringCase("primary_db");
+        assertThat(read1).extracting(String::toLowerCase).containsExactlyInAnyOrder("replica_a", "replica_b");
+    }
+
+    @Test
+    public void leastLoadedTest() throws Exception {
+        //given
+        DataSource dataSource = routing(ReadWriteRoutingDataSource.Selection.LEAST_LOADED, Duration.ZERO, "replica_c");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String database = readOnly(dataSource).execute(status -> database(jdbcTemplate));
+
+        //then
+        assertThat(database).isEqualToIgnoringCase("replica_c");
+    }
+
+    @Test
+    public void replicaLagGuardTest() throws Exception {
+        //given
+        DataSource dataSource = routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofMinutes(1), "replica_d");
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String beforeWrite = readOnly(dataSource).execute(status -> database(jdbcTemplate));
+
+        //when
+        write.executeWithoutResult(status -> jdbcTemplate.execute("create table if not exists lag_test (id int)"));
+        String afterWrite = readOnly(dataSource).execute(status -> database(jdbcTemplate));
+
+        //then
+        // 커밋 후 max-lag 동안은 replica 가 따라오지 못했을 수 있으므로 primary 에서 읽는다
+        assertThat(beforeWrite).isEqualToIgnoringCase("replica_d");
+        assertThat(afterWrite).isEqualToIgnoringCase("primary_db");
+    }
+
+    @Test
+    public void replicaLagGuardOtherThreadTest() throws Exception {
+        //given
+        DataSource dataSource = routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofMinutes(1), "replica_e");
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+        try {
+            //when
+            write.executeWithoutResult(status -> jdbcTemplate.execute("create table if not exists lag_test (id int)"));
+            String sameThread = readOnly(dataSource).execute(status -> database(jdbcTemplate));
+            String other = otherThread.submit(() -> readOnly(dataSource).execute(status -> database(jdbcTemplate)))
+                    .get(10, TimeUnit.SECONDS);
+
+            //then
+            // 관계없는 스레드의 쓰기 때문에 다른 읽기까지 primary 로 몰리지 않는다
+            assertThat(sameThread).isEqualToIgnoringCase("primary_db");
+            assertThat(other).isEqualToIgnoringCase("replica_e");
+        } finally {
+            otherThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void replicaLagGuardSessionTest() throws Exception {
+        //given
+        DataSource dataSource = routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofMinutes(1), "replica_f");
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        MockHttpSession writerSession = new MockHttpSession();
+
+        try {
+            //when
+            inRequest(writerSession, () -> write.execute(status -> {
+                jdbcTemplate.execute("create table if not exists lag_test (id int)");
+                return null;
+            }));
+            // 같은 세션의 다음 요청이 다른 스레드에서 처리된다
+            String sameSession = otherThread.submit(() -> inRequest(writerSession,
+                    () -> readOnly(dataSource).execute(status -> database(jdbcTemplate)))).get(10, TimeUnit.SECONDS);
+            // 쓴 스레드를 이어 받은 다른 세션의 요청
+            String otherSession = inRequest(new MockHttpSession(),
+                    () -> readOnly(dataSource).execute(status -> database(jdbcTemplate)));
+
+            //then
+            assertThat(sameSession).isEqualToIgnoringCase("primary_db");
+            assertThat(otherSession).isEqualToIgnoringCase("replica_f");
+        } finally {
+            otherThread.shutdownNow();
+        }
+    }
+
+    private static <T> T inRequest(MockHttpSession session, Supplier<T> action) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            return action.get();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private DataSource routing(ReadWriteRoutingDataSource.Selection selection, Duration maxLag, String... replicas) {
+        DataSource[] replicaDataSources = new DataSource[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            replicaDataSources[i] = h2(replicas[i]);
+        }
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(h2("primary_db"),
+                Arrays.asList(replicaDataSources), selection, maxLag);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private TransactionTemplate readOnly(DataSource dataSource) {
+        TransactionTemplate read = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        read.setReadOnly(true);
+        return read;
+    }
+
+    private DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private String database(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select database()", String.class);
+    }
+}
@@ -0,0 +1,123 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.support.QueryDslSupportRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MeterRegistry registry;
+    @Autowired
+    FirstTeamRepository firstTeamRepository;
+    @Autowired
+    SecondTeamRepository secondTeamRepository;
+
+    @Test
+    public void searchMetricsTest() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+        long before = count();
+
+        //when
+        memberJpaRepository.searchNullEx(condition);
+
+        //then
+        assertThat(count()).isEqualTo(before + 1);
+        DistributionSummary rows = registry.get("querydsl.repository.rows")
+                .tag("method", "searchNullEx")
+                .tag("shape", "teamName+ageGoe")
+                .summary();
+        assertThat(rows.max()).isEqualTo(2);
+    }
+
+    @Test
+    public void inheritedMethodClassTagTest() throws Exception {
+        //given
+        long firstBefore = count("FirstTeamRepository", "findTeams", "none");
+        long secondBefore = count("SecondTeamRepository", "findTeams", "none");
+
+        //when
+        firstTeamRepository.findTeams();
+        secondTeamRepository.findTeams();
+        secondTeamRepository.findTeams();
+
+        //then
+        // 같은 Method (TeamRepositoryBase.findTeams) 라도 호출된 리포지토리 클래스로 태그가 붙는다
+        assertThat(count("FirstTeamRepository", "findTeams", "none")).isEqualTo(firstBefore + 1);
+        assertThat(count("SecondTeamRepository", "findTeams", "none")).isEqualTo(secondBefore + 2);
+    }
+
+    private long count() {
+        return count("MemberJpaRepository", "searchNullEx", "teamName+ageGoe");
+    }
+
+    private long count(String className, String method, String shape) {
+        Timer timer = registry.find("querydsl.repository.calls")
+                .tag("class", className)
+                .tag("method", method)
+                .tag("shape", shape)
+                .tag("outcome", "success")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @TestConfiguration
+    static class InheritedRepositories {
+        @Bean
+        FirstTeamRepository firstTeamRepository() {
+            return new FirstTeamRepository();
+        }
+
+        @Bean
+        SecondTeamRepository secondTeamRepository() {
+            return new SecondTeamRepository();
+        }
+    }
+
+    abstract static class TeamRepositoryBase extends QueryDslSupportRepository {
+        TeamRepositoryBase() {
+            super(Team.class);
+        }
+
+        public List<Team> findTeams() {
+            return selectFrom(team).fetch();
+        }
+    }
+
+    static class FirstTeamRepository extends TeamRepositoryBase {
+    }
+
+    static class SecondTeamRepository extends TeamRepositoryBase {
+    }
+}
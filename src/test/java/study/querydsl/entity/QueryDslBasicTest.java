@@ -19,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.UserDto;
+import study.querydsl.repository.support.FastProjections;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -678,6 +679,43 @@ public class QueryDslBasicTest {
         }
     }
 
+    /**
+     * FastProjections - Projections.bean / fields / constructor 와 같은 결과를 리플렉션 없이 만든다.
+     */
+    @Test
+    public void findDtoFastProjections() throws Exception {
+        List<MemberDto> byBean = query
+                .select(FastProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+        List<MemberDto> byFields = query
+                .select(FastProjections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+        List<MemberDto> byConstructor = query
+                .select(FastProjections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+        List<UserDto> userDtos = query
+                .select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+
+        List<MemberDto> expected = query
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+        assertThat(byBean).isEqualTo(expected);
+        assertThat(byFields).isEqualTo(expected);
+        assertThat(byConstructor).isEqualTo(expected);
+        assertThat(userDtos).extracting("name").containsExactly("member1", "member2", "member3", "member4");
+    }
+
     /**
      * @QueryProjection 사용 방법
      * Dto 생성자에 @QueryProjection 을 붙이고
@@ -0,0 +1,82 @@
+package study.querydsl.entity;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamMemberDto;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.repository.support.ExpectStatements;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class TeamRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamRepository teamRepository;
+
+    @BeforeEach
+    public void before() {
+        // team0 은 회원 없음, teamN 은 회원 N * 3 명
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < i * 3; j++) {
+                em.persist(new Member("member" + i + "_" + j, 20 + j, team));
+            }
+        }
+        Team other = new Team("other");
+        em.persist(other);
+        em.persist(new Member("otherMember", 30, other));
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 팀 페이지 1번 + 회원 IN 1번 + count 1번, 팀 수만큼 회원 조회가 반복되지 않는다
+     */
+    @Test
+    @ExpectStatements(max = 3, maxRepeats = 1)
+    public void searchTeamsWithMembersTest() throws Exception {
+        //when
+        Page<TeamMembersDto> page = teamRepository.searchTeamsWithMembers("team", PageRequest.of(0, 3));
+
+        //then
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent())
+                .extracting(TeamMembersDto::getTeamName, dto -> dto.getMembers().size())
+                .containsExactly(tuple("team0", 0), tuple("team1", 3), tuple("team2", 6));
+        assertThat(page.getContent().get(2).getMembers())
+                .extracting(TeamMemberDto::getUsername)
+                .containsExactly("member2_0", "member2_1", "member2_2", "member2_3", "member2_4", "member2_5");
+    }
+
+    /**
+     * 마지막 페이지는 count 없이 팀 1번 + 회원 1번
+     */
+    @Test
+    @ExpectStatements(max = 2, maxRepeats = 1)
+    public void lastPageTest() throws Exception {
+        //when
+        Page<TeamMembersDto> page = teamRepository.searchTeamsWithMembers("team", PageRequest.of(1, 3));
+
+        //then
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent())
+                .extracting(TeamMembersDto::getTeamName, dto -> dto.getMembers().size())
+                .containsExactly(tuple("team3", 9), tuple("team4", 12));
+        assertThat(page.getContent().get(1).getMembers())
+                .extracting(TeamMemberDto::getAge)
+                .isSorted();
+    }
+}
@@ -1,16 +1,20 @@
 package study.querydsl.repository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 @SpringBootTest
@@ -22,6 +26,9 @@ class MemberJpaRepositoryTest {
 
     @Autowired
     MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
     
     @Test
     public void repositoryTest() throws Exception {
@@ -68,4 +75,87 @@ class MemberJpaRepositoryTest {
         Assertions.assertThat(result2).extracting("username").contains("member m");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void streamTest() throws Exception {
+        //given
+        Team teamWow = new Team("teamWow");
+        em.persist(teamWow);
+        for (int i = 0; i < 30; i++) {
+            em.persist(new Member("streamUser" + i, 20 + i, teamWow));
+        }
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition searchCond = new MemberSearchCondition();
+        searchCond.setTeamName("teamWow");
+
+        //when
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        long count = memberJpaRepository.streamNullEx(searchCond, streamed::add);
+
+        //then
+        Assertions.assertThat(count).isEqualTo(30);
+        Assertions.assertThat(streamed)
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchNullEx(searchCond));
+    }
+
+    @Test
+    public void streamKeepsPersistenceContextTest() throws Exception {
+        //given
+        Team team = new Team("teamStream");
+        em.persist(team);
+        for (int i = 0; i < 1001; i++) {
+            em.persist(new Member("streamUser" + i, 20, team));
+        }
+        em.flush();
+        Member managed = em.find(Member.class, em.createQuery("select min(m.id) from Member m", Long.class).getSingleResult());
+
+        MemberSearchCondition searchCond = new MemberSearchCondition();
+        searchCond.setTeamName("teamStream");
+
+        //when
+        long count = memberJpaRepository.streamNullEx(searchCond, dto -> { });
+
+        //then
+        // 호출한 쪽 트랜잭션의 엔티티가 detach 되지 않는다
+        Assertions.assertThat(count).isEqualTo(1001);
+        Assertions.assertThat(em.contains(managed)).isTrue();
+        Assertions.assertThat(em.contains(team)).isTrue();
+    }
+
+    @Test
+    public void columnsTest() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("팀B");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("columnUser" + i, 20 + i % 30, i % 3 == 0 ? teamB : teamA));
+        }
+        em.persist(new Member("회원 \"따옴표\"", 25, teamA));
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition searchCond = new MemberSearchCondition();
+        searchCond.setAgeGoe(20);
+
+        //when
+        List<MemberTeamDto> expected = new ArrayList<>();
+        memberJpaRepository.streamNullEx(searchCond, expected::add);
+        MemberTeamColumns columns = memberJpaRepository.searchColumns(searchCond);
+
+        //then
+        Assertions.assertThat(columns.size()).isEqualTo(expected.size());
+        Assertions.assertThat(columns.teamCount()).isGreaterThanOrEqualTo(2);
+        Assertions.assertThat(columns.asList()).containsExactlyElementsOf(expected);
+        // HTTP 응답 (UTF-8 바이트) 과 Writer 두 경로 모두 List<MemberTeamDto> 와 같은 JSON
+        Assertions.assertThat(new String(objectMapper.writeValueAsBytes(columns), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(expected));
+        Assertions.assertThat(objectMapper.writeValueAsString(columns))
+                .isEqualTo(objectMapper.writeValueAsString(expected));
+    }
+
+}
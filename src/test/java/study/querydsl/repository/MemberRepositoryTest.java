@@ -8,15 +8,22 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
 import study.querydsl.entity.TeamRepository;
+import study.querydsl.repository.support.BatchedLookups;
+import study.querydsl.repository.support.MemberSearchTemplates;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static study.querydsl.entity.QMember.member;
@@ -29,6 +36,8 @@ class MemberRepositoryTest {
     MemberRepository memberRepository;
     @Autowired
     TeamRepository teamRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
 
     @BeforeEach
     public void saveMember() {
@@ -85,6 +94,128 @@ class MemberRepositoryTest {
         Assertions.assertThat(result.getContent()).extracting("username").contains("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchSliceTest() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        //when
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 30));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 30));
+
+        //then
+        Assertions.assertThat(first.getContent()).hasSize(30);
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(last.getContent()).hasSize(10);
+        Assertions.assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchComplexConcurrentTest() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(1, 10);
+
+        //when
+        Page<MemberTeamDto> expected = memberRepository.searchComplex(condition, pageRequest);
+        Page<MemberTeamDto> result = memberRepository.searchComplexConcurrent(condition, pageRequest);
+
+        //then
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+        Assertions.assertThat(result.getContent()).isEqualTo(expected.getContent());
+    }
+
+    @Test
+    public void searchByCursorTest() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        //when
+        List<Integer> ages = new ArrayList<>();
+        MemberCursor cursor = MemberCursor.first(MemberCursor.SortKey.AGE);
+        while (true) {
+            CursorPage<MemberTeamDto> page = memberRepository.searchByCursor(condition, cursor, 7);
+            page.getContent().forEach(dto -> ages.add(dto.getAge()));
+            if (!page.isHasNext()) {
+                break;
+            }
+            cursor = MemberCursor.decode(page.getNextCursor());
+        }
+
+        //then
+        Assertions.assertThat(ages).hasSize(40).isSorted();
+    }
+
+    @Test
+    public void searchTemplateShapesTest() throws Exception {
+        //given
+        String[] teamNames = {"team1", "m_1", "100%"}; // like 특수문자는 Querydsl 과 같이 escape 되어야 한다
+
+        for (String teamName : teamNames) {
+            for (int shape = 0; shape < MemberSearchTemplates.SHAPES; shape++) {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                condition.setUsername((shape & MemberSearchTemplates.USERNAME) != 0 ? "member15" : null);
+                condition.setTeamName((shape & MemberSearchTemplates.TEAM_NAME) != 0 ? teamName : null);
+                condition.setAgeGoe((shape & MemberSearchTemplates.AGE_GOE) != 0 ? 25 : null);
+                condition.setAgeLoe((shape & MemberSearchTemplates.AGE_LOE) != 0 ? 45 : null);
+
+                //when
+                List<MemberTeamDto> result = memberRepository.search(condition);
+                List<MemberTeamDto> expected = memberJpaRepository.searchNotNullEx(condition);
+
+                //then
+                Assertions.assertThat(result)
+                        .usingRecursiveFieldByFieldElementComparator()
+                        .containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    public void findByUsernamesTest() throws Exception {
+        //when
+        List<Member> result = memberRepository.findByUsernames(
+                Arrays.asList("member30", "member3", "nobody", "member30", "member12", null));
+
+        //then
+        Assertions.assertThat(result).extracting("username").containsExactly("member30", "member3", "member12");
+    }
+
+    @Test
+    public void findByIdsTest() throws Exception {
+        //given
+        List<Member> members = memberRepository.findAll();
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i < BatchedLookups.BATCH_SIZE * 2; i++) {
+            ids.add(-i); // 없는 id 로 배치를 여러 개 만든다
+        }
+        for (int i = members.size() - 1; i >= 0; i--) {
+            ids.add(members.get(i).getId());
+        }
+
+        //when
+        List<Member> result = memberRepository.findByIds(ids);
+
+        //then
+        Assertions.assertThat(result).hasSize(members.size());
+        for (int i = 0; i < result.size(); i++) {
+            Assertions.assertThat(result.get(i).getId()).isEqualTo(members.get(members.size() - 1 - i).getId());
+        }
+    }
+
+    @Test
+    public void findTeamsByNamesTest() throws Exception {
+        //when
+        List<Team> result = teamRepository.findTeamsByNames(Arrays.asList("team7", "team39", "team0", "teamX"));
+
+        //then
+        Assertions.assertThat(result).extracting("name").containsExactly("team7", "team39", "team0");
+    }
+
     @Test
     public void queryDslPredicateExcuteTest() throws Exception {
         //given
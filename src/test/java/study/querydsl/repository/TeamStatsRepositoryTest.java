@@ -0,0 +1,174 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.MemberWriteTracker;
+import study.querydsl.repository.stats.TeamStatsMaintainer;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * team_stats 는 커밋 직전에 갱신되므로 트랜잭션을 나눠서 확인하고 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    private static final String SNAPSHOT = "select t.name || ':' || s.member_count || ':' || s.age_sum"
+            + " || ':' || coalesce(s.min_age, -1) || ':' || coalesce(s.max_age, -1)"
+            + " from team_stats s join team t on s.team_id = t.id order by t.name";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+    @Autowired
+    TeamStatsMaintainer teamStatsMaintainer;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50, null));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+        // 앞 테스트가 예약한 백그라운드 rebuild 와 겹쳤으면 stale 이므로 여기서 다시 만든다
+        teamStatsMaintainer.rebuild();
+    }
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from team_stats");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void insertTest() throws Exception {
+        assertThat(snapshot()).containsExactly("teamA:2:30:10:20", "teamB:2:70:30:40");
+    }
+
+    @Test
+    public void updateAndDeleteTest() throws Exception {
+        //when
+        tx.executeWithoutResult(status -> {
+            findByUsername("member1").setAge(15);                               // 최소값 변경
+            findByUsername("member4").changeTeam(em.find(Team.class, teamAId)); // 팀 이동 (teamB 의 최대값)
+            em.remove(findByUsername("member2"));                               // teamA 의 최대값 삭제
+        });
+
+        //then
+        assertThat(snapshot()).containsExactly("teamA:2:55:15:40", "teamB:1:30:30:30");
+    }
+
+    @Test
+    public void newTeamRowTest() throws Exception {
+        //when
+        Long teamCId = tx.execute(status -> {
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            return teamC.getId();
+        });
+
+        //then
+        assertThat(snapshot()).containsExactly("teamA:2:30:10:20", "teamB:2:70:30:40", "teamC:0:0:-1:-1");
+        assertThat(teamStatsRepository.findAll()).extracting("teamName").containsExactly("teamA", "teamB");
+
+        //when
+        tx.executeWithoutResult(status -> em.persist(new Member("member6", 60, em.find(Team.class, teamCId))));
+
+        //then
+        assertThat(snapshot()).containsExactly("teamA:2:30:10:20", "teamB:2:70:30:40", "teamC:1:60:60:60");
+    }
+
+    @Test
+    public void missingRowTest() throws Exception {
+        //given
+        jdbcTemplate.update("delete from team_stats where team_id = ?", teamBId);
+
+        //when
+        tx.executeWithoutResult(status -> em.remove(findByUsername("member3"))); // 행이 없어도 커밋된다
+
+        //then
+        // 음수 건수로 만들지 않는다 (백그라운드 rebuild 가 이미 다시 만들었을 수도 있다)
+        assertThat(jdbcTemplate.queryForObject("select count(*) from team_stats where member_count < 0", Long.class)).isZero();
+        teamStatsMaintainer.rebuild();
+        assertThat(snapshot()).containsExactly("teamA:2:30:10:20", "teamB:1:40:40:40");
+    }
+
+    @Test
+    public void aggregateTest() throws Exception {
+        //when
+        List<TeamStatsDto> all = teamStatsRepository.findAll();
+        List<TeamStatsDto> older = teamStatsRepository.findByAgeAvgGt(15);
+        List<TeamStatsDto> younger = teamStatsRepository.findByAgeAvgLt(35);
+
+        //then
+        assertThat(teamStatsMaintainer.isStale()).isFalse();
+        assertThat(all).extracting("teamName", "memberCount", "ageAvg", "minAge", "maxAge")
+                .containsExactly(tuple("teamA", 2L, 15.0, 10, 20),
+                        tuple("teamB", 2L, 35.0, 30, 40));
+        assertThat(older).extracting("teamName").containsExactly("teamB");
+        assertThat(younger).extracting("teamName").containsExactly("teamA");
+    }
+
+    @Test
+    public void bulkWriteRebuildTest() throws Exception {
+        //when
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("update member set age = age + 100 where team_id = ?", teamBId);
+            memberWriteTracker.onBulkWrite();
+        });
+
+        //then
+        // rebuild 전에는 (stale) member 를 직접 집계한다
+        assertThat(teamStatsRepository.findByAgeAvgGt(100)).extracting("teamName", "maxAge")
+                .containsExactly(tuple("teamB", 140));
+
+        teamStatsMaintainer.rebuild();
+        assertThat(teamStatsMaintainer.isStale()).isFalse();
+        assertThat(snapshot()).containsExactly("teamA:2:30:10:20", "teamB:2:270:130:140");
+    }
+
+    private List<String> snapshot() {
+        return jdbcTemplate.queryForList(SNAPSHOT, String.class);
+    }
+
+    private Member findByUsername(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+}
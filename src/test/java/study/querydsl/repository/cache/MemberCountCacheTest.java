@@ -0,0 +1,149 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberCountCacheTest {
+
+    @Test
+    public void normalizedKeyTest() throws Exception {
+        //given
+        MemberSearchCondition cond1 = new MemberSearchCondition();
+        cond1.setUsername(" member1 ");
+        cond1.setTeamName("");
+        MemberSearchCondition cond2 = new MemberSearchCondition();
+        cond2.setUsername("member1");
+
+        //when
+        MemberSearchKey key1 = MemberSearchKey.of(cond1, MemberSearchKey.JoinShape.LEFT);
+        MemberSearchKey key2 = MemberSearchKey.of(cond2, MemberSearchKey.JoinShape.LEFT);
+        MemberSearchKey innerKey = MemberSearchKey.of(cond2, MemberSearchKey.JoinShape.INNER);
+
+        //then
+        assertThat(key1).isEqualTo(key2);
+        assertThat(key1).isNotEqualTo(innerKey);
+        assertThat(key1.toCondition().getTeamName()).isNull();
+    }
+
+    @Test
+    public void matchesAsIsTest() throws Exception {
+        //given
+        MemberSearchCondition padded = new MemberSearchCondition();
+        padded.setUsername(" member1 ");
+        MemberSearchCondition blank = new MemberSearchCondition();
+        blank.setUsername("member1");
+        blank.setTeamName(" ");
+
+        //when
+        MemberSearchKey paddedKey = MemberSearchKey.of(padded, MemberSearchKey.JoinShape.LEFT);
+        MemberSearchKey blankKey = MemberSearchKey.of(blank, MemberSearchKey.JoinShape.LEFT);
+
+        //then
+        // 앞뒤 공백은 그대로 쿼리하면 결과가 달라지고, 공백뿐인 값은 조건 없음과 같다
+        assertThat(paddedKey.matchesAsIs(padded)).isFalse();
+        assertThat(blankKey.matchesAsIs(blank)).isTrue();
+    }
+
+    @Test
+    public void cacheAndInvalidateTest() throws Exception {
+        //given
+        MemberCountCache cache = new MemberCountCache(100, Duration.ofMinutes(1));
+        MemberSearchKey key = MemberSearchKey.of(new MemberSearchCondition(), MemberSearchKey.JoinShape.LEFT);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        long first = cache.get(key, () -> calls.incrementAndGet() * 10L);
+        long second = cache.get(key, () -> calls.incrementAndGet() * 10L);
+        cache.onMemberWrite();
+        long third = cache.get(key, () -> calls.incrementAndGet() * 10L);
+
+        //then
+        assertThat(first).isEqualTo(10);
+        assertThat(second).isEqualTo(10);
+        assertThat(third).isEqualTo(20);
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        //given
+        MemberCountCache cache = new MemberCountCache(false);
+        MemberSearchKey key = MemberSearchKey.of(new MemberSearchCondition(), MemberSearchKey.JoinShape.LEFT);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        long first = cache.get(key, () -> calls.incrementAndGet() * 10L);
+        long second = cache.get(key, () -> calls.incrementAndGet() * 10L);
+
+        //then
+        assertThat(first).isEqualTo(10);
+        assertThat(second).isEqualTo(20);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void singleLoaderTest() throws Exception {
+        //given
+        MemberCountCache cache = new MemberCountCache(100, Duration.ofMinutes(1));
+        MemberSearchKey key = MemberSearchKey.of(new MemberSearchCondition(), MemberSearchKey.JoinShape.INNER);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //when
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get(key, () -> {
+                    calls.incrementAndGet();
+                    return 42L;
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Long> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42L);
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void boundedSizeTest() throws Exception {
+        //given
+        MemberCountCache cache = new MemberCountCache(10, Duration.ofMinutes(1));
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(i);
+            cache.get(MemberSearchKey.of(condition, MemberSearchKey.JoinShape.LEFT), () -> 1L);
+        }
+
+        //then
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void detectWriteStatementTest() throws Exception {
+        assertThat(MemberWriteTracker.isMemberTableWrite("insert into member (age, team_id, username, member_id) values (?, ?, ?, ?)")).isTrue();
+        assertThat(MemberWriteTracker.isMemberTableWrite("update member set username=? where age<?")).isTrue();
+        assertThat(MemberWriteTracker.isMemberTableWrite("delete from team where id=?")).isTrue();
+        assertThat(MemberWriteTracker.isMemberTableWrite("select member0_.member_id from member member0_")).isFalse();
+        assertThat(MemberWriteTracker.isMemberTableWrite("insert into member_log (id) values (?)")).isFalse();
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchResultCacheTest {
+
+    private final MemberSearchResultCache cache = new MemberSearchResultCache(true, 1000, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void readThroughTest() throws Exception {
+        //given
+        MemberSearchKey key = key("teamA");
+
+        //when
+        cache.get(key, this::load);
+        cache.get(key, this::load);
+        cache.get(key, 0, 10, this::load);
+
+        //then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void teamScopedInvalidationTest() throws Exception {
+        //given
+        MemberSearchKey teamA = key("teamA");
+        MemberSearchKey teamB = key("teamB");
+        MemberSearchKey all = key(null);
+        cache.get(teamA, this::load);
+        cache.get(teamB, this::load);
+        cache.get(all, this::load);
+
+        //when
+        cache.onTeamWrite(Collections.singleton("teamA"));
+        cache.get(teamA, this::load);
+        cache.get(teamB, this::load);
+        cache.get(all, this::load);
+
+        //then
+        // teamB 조건의 결과만 살아남는다
+        assertThat(loads.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        //given
+        MemberSearchResultCache disabled = new MemberSearchResultCache(false, 1000, Duration.ofMinutes(1));
+
+        //when
+        disabled.get(key("teamA"), this::load);
+        disabled.get(key("teamA"), this::load);
+
+        //then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(disabled.size()).isZero();
+    }
+
+    private List<MemberTeamDto> load() {
+        loads.incrementAndGet();
+        return Collections.singletonList(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+    }
+
+    private MemberSearchKey key(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeamNameIndexTest {
+
+    private static final String ALPHABET = "abcdefgh_%";
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void findTest() throws Exception {
+        //given
+        TeamNameIndex.Trigrams trigrams = new TeamNameIndex.Trigrams();
+        Map<Long, String> names = new HashMap<>();
+        for (long id = 1; id <= 5_000; id++) {
+            String name = randomName(4 + random.nextInt(8));
+            trigrams.put(id, name);
+            names.put(id, name);
+        }
+
+        //when
+        //then
+        for (int i = 0; i < 500; i++) {
+            String teamName = randomName(1 + random.nextInt(5));
+            assertThat(trigrams.find(teamName)).isEqualTo(scan(names, teamName));
+        }
+    }
+
+    @Test
+    public void updateTest() throws Exception {
+        //given
+        TeamNameIndex.Trigrams trigrams = new TeamNameIndex.Trigrams();
+        trigrams.put(1L, "teamA");
+        trigrams.put(2L, "teamB");
+
+        //when
+        trigrams.put(1L, "teamC"); // 이름 변경
+        trigrams.put(2L, null);    // 삭제
+
+        //then
+        assertThat(trigrams.find("team")).containsExactly(1L);
+        assertThat(trigrams.find("teamA")).isEmpty();
+        assertThat(trigrams.find("teamB")).isEmpty();
+        assertThat(trigrams.find("amC")).containsExactly(1L);
+        assertThat(trigrams.size()).isEqualTo(1);
+    }
+
+    /**
+     * LIKE '%x%' 와 같은 선형 탐색과 같은 결과 (시간 비교는 src/jmh 의 TeamNameIndexBenchmark)
+     */
+    @Test
+    public void sameAsLinearScanTest() throws Exception {
+        //given
+        TeamNameIndex.Trigrams trigrams = new TeamNameIndex.Trigrams();
+        Map<Long, String> names = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            String name = "team" + id;
+            trigrams.put(id, name);
+            names.put(id, name);
+        }
+        String[] queries = {"team123", "999", "m1000", "42", "team", "nothing"};
+
+        //when
+        //then
+        for (String query : queries) {
+            assertThat(trigrams.find(query)).as(query).isEqualTo(scan(names, query));
+        }
+    }
+
+    private Set<Long> scan(Map<Long, String> names, String teamName) {
+        Set<Long> result = new HashSet<>();
+        names.forEach((id, name) -> {
+            if (name.contains(teamName)) {
+                result.add(id);
+            }
+        });
+        return result;
+    }
+
+    private String randomName(int length) {
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+}
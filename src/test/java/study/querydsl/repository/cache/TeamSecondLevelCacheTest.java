@@ -0,0 +1,203 @@
+package study.querydsl.repository.cache;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 2차 캐시는 커밋 후에 채워지므로 트랜잭션을 나눠서 확인하고 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class TeamSecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        teamId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            return teamA.getId();
+        });
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void teamAndMembersHitTest() throws Exception {
+        //given
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId).getMembers().size());
+
+        //when
+        int size = tx.execute(status -> em.find(Team.class, teamId).getMembers().size());
+
+        //then
+        assertThat(size).isEqualTo(2);
+        assertThat(region(Team.CACHE_REGION).getHitCount()).isEqualTo(2);
+        assertThat(region(Team.CACHE_REGION).getMissCount()).isZero();
+        assertThat(region(Team.MEMBERS_CACHE_REGION).getMissCount()).isEqualTo(1);
+        assertThat(region(Team.MEMBERS_CACHE_REGION).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void querydslBulkUpdateEvictTest() throws Exception {
+        //given
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId));
+
+        //when
+        tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(team)
+                .set(team.name, "teamB")
+                .where(team.id.eq(teamId))
+                .execute());
+        String name = tx.execute(status -> em.find(Team.class, teamId).getName());
+
+        //then
+        assertThat(name).isEqualTo("teamB");
+        assertThat(region(Team.CACHE_REGION).getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void jdbcBulkWriteEvictTest() throws Exception {
+        //given
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId).getMembers().size());
+
+        //when
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("update team set name = 'teamC' where id = ?", teamId);
+            jdbcTemplate.update("delete from member where username = 'member2'");
+            memberWriteTracker.onBulkWrite();
+        });
+        Team findTeam = tx.execute(status -> {
+            Team found = em.find(Team.class, teamId);
+            found.getMembers().size();
+            return found;
+        });
+
+        //then
+        assertThat(findTeam.getName()).isEqualTo("teamC");
+        assertThat(findTeam.getMembers()).extracting("username").containsExactly("member1");
+        assertThat(region(Team.CACHE_REGION).getMissCount()).isEqualTo(1);
+        assertThat(region(Team.MEMBERS_CACHE_REGION).getMissCount()).isEqualTo(2);
+    }
+
+    /**
+     * members 는 mappedBy 쪽이라 회원만 바뀌어도 auto_evict_collection_cache 로 옛 팀 / 새 팀 컬렉션이 비워져야 한다
+     */
+    @Test
+    public void memberChangeTeamEvictTest() throws Exception {
+        //given
+        Long teamBId = tx.execute(status -> {
+            Team teamB = new Team("teamB");
+            em.persist(teamB);
+            return teamB.getId();
+        });
+        tx.executeWithoutResult(status -> {
+            em.find(Team.class, teamId).getMembers().size();
+            em.find(Team.class, teamBId).getMembers().size();
+        });
+
+        //when
+        tx.executeWithoutResult(status -> memberByUsername("member2").changeTeam(em.find(Team.class, teamBId)));
+
+        //then
+        assertThat(memberUsernames(teamId)).containsExactly("member1");
+        assertThat(memberUsernames(teamBId)).containsExactly("member2");
+    }
+
+    @Test
+    public void memberDeleteEvictTest() throws Exception {
+        //given
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId).getMembers().size());
+
+        //when
+        tx.executeWithoutResult(status -> em.remove(memberByUsername("member2")));
+
+        //then
+        assertThat(memberUsernames(teamId)).containsExactly("member1");
+    }
+
+    /**
+     * 회원 엔티티 변경만으로는 region 전체를 비우지 않는다 (TeamCacheEvictor 는 bulk 쓰기에만 반응)
+     */
+    @Test
+    public void entityWriteKeepsOtherTeamsCachedTest() throws Exception {
+        //given
+        Long teamBId = tx.execute(status -> {
+            Team teamB = new Team("teamB");
+            em.persist(teamB);
+            em.persist(new Member("member3", 30, teamB));
+            return teamB.getId();
+        });
+        tx.executeWithoutResult(status -> em.find(Team.class, teamBId).getMembers().size());
+        statistics.clear();
+
+        //when
+        tx.executeWithoutResult(status -> memberByUsername("member1").setAge(11));
+        int size = tx.execute(status -> em.find(Team.class, teamBId).getMembers().size());
+
+        //then
+        assertThat(size).isEqualTo(1);
+        assertThat(region(Team.CACHE_REGION).getMissCount()).isZero();
+        assertThat(region(Team.MEMBERS_CACHE_REGION).getMissCount()).isZero();
+    }
+
+    private Member memberByUsername(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+
+    private List<String> memberUsernames(Long id) {
+        return tx.execute(status -> em.find(Team.class, id).getMembers().stream()
+                .map(Member::getUsername)
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+
+    private CacheRegionStatistics region(String regionName) {
+        return statistics.getDomainDataRegionStatistics(regionName);
+    }
+}
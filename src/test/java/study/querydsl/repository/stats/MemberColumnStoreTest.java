@@ -0,0 +1,207 @@
+package study.querydsl.repository.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberWriteTracker;
+import study.querydsl.repository.support.BulkDataLoader;
+import study.querydsl.repository.support.BulkLoadSpec;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 같은 조건으로 MemberRepository.search (SQL) 결과를 집계한 값과 비교한다.
+ * 적재 / 커밋이 필요하므로 @Transactional 롤백 대신 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class MemberColumnStoreTest {
+
+    private static final String[] TEAM_NAMES = {null, "team1", "am2", "0", "team4", "nothing"};
+    private static final String[] USERNAMES = {null, null, null, "member7", "member12345", "nobody"};
+
+    @Autowired
+    MemberColumnStore memberColumnStore;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    BulkDataLoader bulkDataLoader;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    private final Random random = new Random(42);
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from team_stats");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void sameAsSqlTest() throws Exception {
+        //given
+        BulkLoadSpec spec = new BulkLoadSpec();
+        spec.setSeed(3);
+        spec.setTeams(50);
+        spec.setMembers(MemberColumnStore.PARALLEL_THRESHOLD + 5_000); // fork/join 으로 나눠지는 크기
+        spec.setTeamSkew(1.0);
+        spec.setNoTeamRatio(0.05);
+        bulkDataLoader.generate(spec);
+
+        //when
+        //then
+        assertSameAsSql(40);
+        assertThat(memberColumnStore.isStale()).isFalse();
+    }
+
+    @Test
+    public void incrementalRefreshTest() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            Member member3 = new Member("member3", 30, teamB);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            em.persist(new Member("member4", 40, null));
+            return new Long[]{member1.getId(), member2.getId(), member3.getId(), teamB.getId()};
+        });
+        assertThat(memberColumnStore.size()).isEqualTo(4); // 여기서 적재된다
+
+        //when
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, ids[0]).setAge(15);                                   // 나이 변경
+            em.find(Member.class, ids[1]).changeTeam(em.find(Team.class, ids[3]));   // 팀 이동
+            em.remove(em.find(Member.class, ids[2]));                                 // 삭제
+            em.find(Team.class, ids[3]).setName("teamC");                             // 팀 이름 변경
+            Team teamD = new Team("teamD");
+            em.persist(teamD);
+            em.persist(new Member("member5", 50, teamD));                              // 새 팀, 새 회원
+        });
+
+        //then
+        assertThat(memberColumnStore.isStale()).isFalse(); // 다시 읽지 않고 overlay 로 반영
+        assertThat(memberColumnStore.size()).isEqualTo(4);
+        SortedMap<String, MemberAggregate> byTeam = memberColumnStore.groupByTeamName(new MemberSearchCondition());
+        assertThat(byTeam).containsOnlyKeys("teamA", "teamC", "teamD");
+        assertThat(byTeam.get("teamA")).isEqualTo(new MemberAggregate(1, 15, 15, 15));
+        assertThat(byTeam.get("teamC")).isEqualTo(new MemberAggregate(1, 20, 20, 20));
+        assertThat(byTeam.get("teamD")).isEqualTo(new MemberAggregate(1, 50, 50, 50));
+        assertSameAsSql(20);
+    }
+
+    @Test
+    public void pendingChangesAppliedOnNextReadTest() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Long[] memberIds = new Long[20];
+            for (int i = 0; i < memberIds.length; i++) {
+                Member member = new Member("member" + i, 10, teamA);
+                em.persist(member);
+                memberIds[i] = member.getId();
+            }
+            return memberIds;
+        });
+        assertThat(memberColumnStore.size()).isEqualTo(20);
+        Long teamId = tx.execute(status -> em.find(Member.class, ids[0]).getTeam().getId());
+
+        //when
+        for (int i = 0; i < ids.length; i++) { // 커밋마다 따로
+            int age = 20 + i;
+            Long id = ids[i];
+            tx.executeWithoutResult(status -> em.find(Member.class, id).setAge(age));
+        }
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId).setName("teamB"));
+
+        //then
+        assertThat(memberColumnStore.pendingChanges()).isEqualTo(ids.length + 1); // 커밋 때는 모으기만 한다
+        SortedMap<String, MemberAggregate> byTeam = memberColumnStore.groupByTeamName(new MemberSearchCondition());
+        assertThat(memberColumnStore.pendingChanges()).isZero();
+        assertThat(memberColumnStore.isStale()).isFalse();
+        assertThat(byTeam).containsOnlyKeys("teamB");
+        assertThat(byTeam.get("teamB")).isEqualTo(new MemberAggregate(20, (20 + 39) * 10, 20, 39));
+        assertSameAsSql(10);
+    }
+
+    @Test
+    public void bulkWriteReloadTest() throws Exception {
+        //given
+        BulkLoadSpec spec = new BulkLoadSpec();
+        spec.setTeams(10);
+        spec.setMembers(2_000);
+        bulkDataLoader.generate(spec);
+        memberColumnStore.aggregate(new MemberSearchCondition());
+
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("update member set age = age + 1000 where mod(member_id, 3) = 0");
+            memberWriteTracker.onBulkWrite();
+        });
+
+        //then
+        assertThat(memberColumnStore.isStale()).isTrue();
+        assertSameAsSql(20);
+        assertThat(memberColumnStore.isStale()).isFalse();
+    }
+
+    private void assertSameAsSql(int conditions) {
+        for (int i = 0; i < conditions; i++) {
+            MemberSearchCondition condition = randomCondition();
+            List<MemberTeamDto> rows = memberRepository.search(condition);
+
+            MemberAggregate expectedTotal = MemberAggregate.EMPTY;
+            SortedMap<String, MemberAggregate> expectedByTeam = new TreeMap<>();
+            SortedMap<Integer, Long> expectedHistogram = new TreeMap<>();
+            for (MemberTeamDto row : rows) {
+                MemberAggregate one = new MemberAggregate(1, row.getAge(), row.getAge(), row.getAge());
+                expectedTotal = expectedTotal.plus(one);
+                expectedByTeam.merge(row.getTeamName(), one, MemberAggregate::plus);
+                expectedHistogram.merge(Math.floorDiv(row.getAge(), 10) * 10, 1L, Long::sum);
+            }
+
+            assertThat(memberColumnStore.aggregate(condition)).as(condition.toString()).isEqualTo(expectedTotal);
+            assertThat(memberColumnStore.groupByTeamName(condition)).as(condition.toString()).isEqualTo(expectedByTeam);
+            assertThat(memberColumnStore.ageHistogram(condition, 10)).as(condition.toString()).isEqualTo(expectedHistogram);
+        }
+    }
+
+    private MemberSearchCondition randomCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(USERNAMES[random.nextInt(USERNAMES.length)]);
+        condition.setTeamName(TEAM_NAMES[random.nextInt(TEAM_NAMES.length)]);
+        condition.setAgeGoe(random.nextBoolean() ? 10 + random.nextInt(40) : null);
+        condition.setAgeLoe(random.nextBoolean() ? 30 + random.nextInt(60) : null);
+        return condition;
+    }
+}
@@ -0,0 +1,145 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.repository.cache.MemberWriteTracker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * chunk 마다 커밋하므로 @Transactional 롤백 대신 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class BulkDataLoaderTest {
+
+    private static final String SNAPSHOT = "select m.username || ':' || m.age || ':' || coalesce(t.name, '-')"
+            + " from member m left join team t on m.team_id = t.id order by m.username";
+
+    @Autowired
+    BulkDataLoader bulkDataLoader;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void generateTest() throws Exception {
+        //given
+        BulkLoadSpec spec = spec();
+
+        //when
+        BulkDataLoader.BulkLoadResult result = bulkDataLoader.generate(spec);
+        System.out.println("result = " + result);
+
+        //then
+        assertThat(count("select count(*) from team")).isEqualTo(20);
+        assertThat(count("select count(*) from member")).isEqualTo(2_000);
+        assertThat(count("select count(distinct member_id) from member")).isEqualTo(2_000);
+        assertThat(count("select count(*) from member where age < 20 or age > 29")).isZero();
+        // zipf: 첫 번째 팀이 마지막 팀보다 훨씬 크다
+        assertThat(count("select count(*) from member m join team t on m.team_id = t.id where t.name = 'team0'"))
+                .isGreaterThan(count("select count(*) from member m join team t on m.team_id = t.id where t.name = 'team19'") * 5);
+    }
+
+    @Test
+    public void sameSeedSameDataTest() throws Exception {
+        //given
+        bulkDataLoader.generate(spec());
+        List<String> first = jdbcTemplate.queryForList(SNAPSHOT, String.class);
+        deleteAll();
+
+        //when
+        bulkDataLoader.generate(spec());
+        List<String> second = jdbcTemplate.queryForList(SNAPSHOT, String.class);
+
+        //then
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    public void ingestTest() throws Exception {
+        //given
+        Path csv = Files.createTempFile("members", ".csv");
+        Files.write(csv, Arrays.asList("member1,10,teamA", "member2,20,teamB", "member3,30,teamA", "member4,40,"));
+
+        //when
+        BulkDataLoader.BulkLoadResult result;
+        try {
+            result = bulkDataLoader.ingest(csv, 2);
+        } finally {
+            deleteQuietly(csv);
+        }
+
+        //then
+        assertThat(result.getTeams()).isEqualTo(2);
+        assertThat(result.getMembers()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForList(SNAPSHOT, String.class))
+                .containsExactly("member1:10:teamA", "member2:20:teamB", "member3:30:teamA", "member4:40:-");
+    }
+
+    @Test
+    public void ingestQuotedCsvTest() throws Exception {
+        //given
+        Path csv = Files.createTempFile("members", ".csv");
+        Files.write(csv, Arrays.asList(
+                "\"kim, junior\",10,\"team \"\"A\"\"\"",
+                "",
+                "\"multi",
+                "line\",20,\"team,B\"",
+                "lee,30,"));
+
+        //when
+        BulkDataLoader.BulkLoadResult result;
+        try {
+            result = bulkDataLoader.ingest(csv, 2);
+        } finally {
+            deleteQuietly(csv);
+        }
+
+        //then
+        // 따옴표 안의 쉼표, 줄바꿈, "" 는 필드 값이다
+        assertThat(result.getTeams()).isEqualTo(2);
+        assertThat(result.getMembers()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList(SNAPSHOT, String.class))
+                .containsExactly("kim, junior:10:team \"A\"", "lee:30:-", "multi" + System.lineSeparator() + "line:20:team,B");
+    }
+
+    private BulkLoadSpec spec() {
+        BulkLoadSpec spec = new BulkLoadSpec();
+        spec.setSeed(7);
+        spec.setTeams(20);
+        spec.setMembers(2_000);
+        spec.setMinAge(20);
+        spec.setMaxAge(29);
+        spec.setTeamSkew(1.2);
+        spec.setChunkSize(300);
+        return spec;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
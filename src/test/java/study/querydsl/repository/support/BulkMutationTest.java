@@ -0,0 +1,129 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.cache.MemberWriteTracker;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * chunk 마다 커밋하므로 @Transactional 롤백 대신 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class BulkMutationTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i * 10, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void chunkedUpdateTest() throws Exception {
+        //given
+        List<BulkMutationProgress> reported = new ArrayList<>();
+        BulkMutationOptions options = new BulkMutationOptions();
+        options.setChunkSize(3);
+        options.setProgressListener(reported::add);
+
+        //when
+        BulkMutationProgress result = memberTestRepository.bulkAddAge(20, 1, options); // 20 ~ 90 살, 8 명
+
+        //then
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(result.getAffectedRows()).isEqualTo(8);
+        assertThat(reported).extracting(BulkMutationProgress::getAffectedRows).containsExactly(3L, 6L, 8L);
+        assertThat(jdbcTemplate.queryForList("select age from member order by member_id", Integer.class))
+                .containsExactly(0, 10, 21, 31, 41, 51, 61, 71, 81, 91);
+    }
+
+    @Test
+    public void detachOnlyAffectedTest() throws Exception {
+        //given
+        BulkMutationOptions options = new BulkMutationOptions();
+        options.setChunkSize(4);
+
+        //when
+        //then
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            Member young = findByUsername("member1");
+            Member old = findByUsername("member9");
+
+            memberTestRepository.bulkAddAge(50, 100, options);
+
+            assertThat(em.contains(young)).isTrue();
+            assertThat(em.contains(old)).isFalse();
+            assertThat(findByUsername("member9").getAge()).isEqualTo(190);
+        });
+    }
+
+    @Test
+    public void chunkedDeleteTest() throws Exception {
+        //given
+        BulkMutationOptions options = new BulkMutationOptions();
+        options.setChunkSize(2);
+
+        //when
+        BulkMutationProgress result = memberTestRepository.bulkDeleteByAgeGoe(50, options);
+
+        //then
+        assertThat(result.getAffectedRows()).isEqualTo(5);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member", Long.class)).isEqualTo(5);
+    }
+
+    @Test
+    public void rejectInWriteTransactionTest() throws Exception {
+        assertThatThrownBy(() -> tx.executeWithoutResult(
+                status -> memberTestRepository.bulkAddAge(0, 1, new BulkMutationOptions())))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private Member findByUsername(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+}
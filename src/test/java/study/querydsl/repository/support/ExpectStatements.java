@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 본문에서 실행된 SQL 수를 검증한다 (@BeforeEach 에서 실행된 SQL 은 세지 않는다).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(StatementCountExtension.class)
+public @interface ExpectStatements {
+
+    /**
+     * 최대 SQL 수
+     */
+    int max() default Integer.MAX_VALUE;
+
+    /**
+     * 같은 모양의 SQL 최대 반복 횟수 (N+1 검출)
+     */
+    int maxRepeats() default Integer.MAX_VALUE;
+}
@@ -0,0 +1,85 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class IdPaginationTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before() {
+        Team[] teams = {new Team("teamA"), new Team("teamB"), new Team("teamC")};
+        for (Team team : teams) {
+            em.persist(team);
+        }
+        for (int i = 0; i < 57; i++) {
+            em.persist(new Member(String.format("member%02d", (i * 7) % 57), 20 + i % 10, teams[i % 3]));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void sameAsApplyPaginationTest() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(22);
+        List<Sort> sorts = Arrays.asList(
+                Sort.by("id"),
+                Sort.by(Sort.Order.desc("age"), Sort.Order.asc("id")),
+                Sort.by("username"));
+
+        for (Sort sort : sorts) {
+            for (int page = 0; page < 6; page++) {
+                PageRequest pageable = PageRequest.of(page, 10, sort);
+
+                //when
+                Page<Member> expected = memberTestRepository.applyPagination(condition, pageable);
+                Page<Member> result = memberTestRepository.applyIdPagination(condition, pageable);
+
+                //then
+                assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+                assertThat(result.getContent())
+                        .as("%s page %d", sort, page)
+                        .containsExactlyElementsOf(expected.getContent()); // 같은 영속성 컨텍스트의 같은 인스턴스
+            }
+        }
+    }
+
+    /**
+     * id 페이지 1번 + 엔티티 IN 1번 + count 1번
+     */
+    @Test
+    @ExpectStatements(max = 3, maxRepeats = 1)
+    public void statementCountTest() throws Exception {
+        //when
+        Page<Member> result = memberTestRepository.applyIdPagination(new MemberSearchCondition(), PageRequest.of(1, 20, Sort.by("age", "id")));
+
+        //then
+        assertThat(result.getTotalElements()).isEqualTo(57);
+        assertThat(result.getContent()).hasSize(20);
+        assertThat(result.getContent()).extracting(Member::getAge).isSorted();
+    }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.MemberSearchKey;
+import study.querydsl.repository.cache.MemberWriteTracker;
+
+import javax.persistence.EntityManager;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 표본을 백그라운드에서 다시 뽑는지 확인한다. 커밋이 필요하므로 끝나고 직접 지운다.
+ */
+@SpringBootTest(properties = "querydsl.count-estimate.min-refresh-interval=2s")
+class MemberCountEstimatorRefreshTest {
+
+    @Autowired
+    MemberCountEstimator memberCountEstimator;
+    @Autowired
+    BulkDataLoader bulkDataLoader;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from team_stats");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void staleSampleIsServedUntilBackgroundRefreshTest() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("member" + i, 20 + i, teamA));
+            }
+        });
+        MemberSearchKey key = key("teamA");
+        // 커밋 후 백그라운드에서 다시 뽑는다
+        await(() -> !memberCountEstimator.isStale() && memberCountEstimator.estimate(key).getTotal() == 3);
+        assertThat(memberCountEstimator.estimate(key).isExact()).isTrue();
+
+        //when
+        tx.executeWithoutResult(status -> em.persist(new Member("member3", 30, em.find(Team.class,
+                em.createQuery("select t.id from Team t where t.name = 'teamA'", Long.class).getSingleResult()))));
+
+        //then
+        // 다시 뽑을 때까지(최소 2초 간격) 이전 표본으로 바로 답하고 정확하지 않다고 표시한다
+        MemberCountEstimator.CountEstimate stale = memberCountEstimator.estimate(key);
+        assertThat(memberCountEstimator.isStale()).isTrue();
+        assertThat(stale.getTotal()).isEqualTo(3);
+        assertThat(stale.isExact()).isFalse();
+
+        await(() -> !memberCountEstimator.isStale() && memberCountEstimator.estimate(key).getTotal() == 4);
+        assertThat(memberCountEstimator.estimate(key).isExact()).isTrue();
+    }
+
+    @Test
+    public void rangeSampleTest() throws Exception {
+        //given
+        BulkLoadSpec spec = new BulkLoadSpec();
+        spec.setTeams(20);
+        spec.setMembers(50_000);
+        bulkDataLoader.generate(spec);
+        memberCountEstimator.refresh();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(50);
+        MemberSearchKey key = MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+        Long actual = jdbcTemplate.queryForObject("select count(*) from member where age between 30 and 50", Long.class);
+
+        //when
+        MemberCountEstimator.CountEstimate all = memberCountEstimator.estimate(key(null));
+        MemberCountEstimator.CountEstimate range = memberCountEstimator.estimate(key);
+
+        //then
+        assertThat(all.isExact()).isFalse();
+        assertThat(all.getTotal()).isEqualTo(50_000);
+        assertThat(range.isExact()).isFalse();
+        assertThat(range.getTotal()).isBetween(actual - 3 * range.getErrorBound(), actual + 3 * range.getErrorBound());
+    }
+
+    private MemberSearchKey key(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("10초 안에 다시 뽑히지 않았다").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
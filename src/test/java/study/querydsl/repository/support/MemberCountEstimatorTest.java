@@ -0,0 +1,82 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cache.MemberSearchKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberCountEstimatorTest {
+
+    @Test
+    public void fullSampleIsExactTest() throws Exception {
+        //given
+        MemberCountEstimator.Sample sample = sample(4);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //when
+        MemberCountEstimator.CountEstimate estimate = sample.estimate(key(condition), false);
+
+        //then
+        assertThat(estimate.isExact()).isTrue();
+        assertThat(estimate.getTotal()).isEqualTo(2);
+        assertThat(estimate.getErrorBound()).isZero();
+    }
+
+    @Test
+    public void scaledEstimateTest() throws Exception {
+        //given
+        // 표본 4건이 100만 건 테이블을 대표
+        MemberCountEstimator.Sample sample = sample(1_000_000);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        //when
+        MemberCountEstimator.CountEstimate estimate = sample.estimate(key(condition), false);
+
+        //then
+        assertThat(estimate.isExact()).isFalse();
+        assertThat(estimate.getTotal()).isEqualTo(500_000);
+        assertThat(estimate.getErrorBound()).isPositive();
+    }
+
+    @Test
+    public void clusteredErrorBoundTest() throws Exception {
+        //given
+        // 같은 표본, 같은 매칭 건수(2 / 4)지만 범위(cluster)가 다르다
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        MemberCountEstimator.Sample byAge = sample(1_000_000, new int[]{0, 1, 0, 1});    // 범위마다 전부 매칭 / 전부 아님
+        MemberCountEstimator.Sample mixed = sample(1_000_000, new int[]{0, 0, 1, 1});    // 범위마다 반씩
+        MemberCountEstimator.Sample byRow = sample(1_000_000, new int[]{0, 1, 2, 3});    // row 단위
+
+        //when
+        MemberCountEstimator.CountEstimate byAgeEstimate = byAge.estimate(key(condition), false);
+        MemberCountEstimator.CountEstimate mixedEstimate = mixed.estimate(key(condition), false);
+        MemberCountEstimator.CountEstimate byRowEstimate = byRow.estimate(key(condition), false);
+
+        //then
+        // 추정값은 같고, 범위 안의 row 가 서로 닮을수록 오차 범위가 커진다
+        assertThat(byAgeEstimate.getTotal()).isEqualTo(500_000);
+        assertThat(mixedEstimate.getTotal()).isEqualTo(500_000);
+        assertThat(byAgeEstimate.getErrorBound()).isGreaterThan(byRowEstimate.getErrorBound());
+        assertThat(mixedEstimate.getErrorBound()).isLessThan(byRowEstimate.getErrorBound());
+    }
+
+    private MemberCountEstimator.Sample sample(long tableRows) {
+        return sample(tableRows, new int[]{0, 1, 2, 3});
+    }
+
+    private MemberCountEstimator.Sample sample(long tableRows, int[] clusters) {
+        String[] usernames = {"member1", "member2", "member3", "member4"};
+        int[] ages = {10, 20, 10, 20};
+        String[] teamNames = {"teamA", "teamA", "teamB", "teamB"};
+        boolean[] hasTeam = {true, true, true, true};
+        return new MemberCountEstimator.Sample(tableRows, usernames, ages, teamNames, hasTeam, clusters, System.nanoTime());
+    }
+
+    private MemberSearchKey key(MemberSearchCondition condition) {
+        return MemberSearchKey.of(condition, MemberSearchKey.JoinShape.INNER);
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.repository.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchJsonWriterTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberSearchJsonWriter memberSearchJsonWriter;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("team_B");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 50; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.persist(new Member("회원 \"따옴표\"", 30, teamA));
+        em.persist(new Member(null, 40, teamB));
+        em.persist(new Member("noTeam", 20, null));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void sameAsDtoTest() throws Exception {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        conditions.add(new MemberSearchCondition());
+        conditions.add(condition(null, "_B", 20, null));
+        conditions.add(condition("member3", null, null, null));
+        conditions.add(condition(null, "team", 25, 45));
+        conditions.add(condition(null, "nothing", null, null));
+
+        for (MemberSearchCondition condition : conditions) {
+            //when
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long count;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                count = memberSearchJsonWriter.writeArray(condition, generator);
+            }
+
+            //then
+            List<MemberTeamDto> expected = memberJpaRepository.searchNullEx(condition);
+            List<MemberTeamDto> written = objectMapper.readValue(out.toByteArray(), new TypeReference<List<MemberTeamDto>>() {
+            });
+            assertThat(count).isEqualTo(expected.size());
+            assertThat(written).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void linesTest() throws Exception {
+        //given
+        MemberSearchCondition condition = condition(null, "teamA", null, null);
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            memberSearchJsonWriter.writeLines(condition, generator);
+        }
+
+        //then
+        List<MemberTeamDto> written = new ArrayList<>();
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                written.add(objectMapper.readValue(line, MemberTeamDto.class));
+            }
+        }
+        assertThat(written).containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchNullEx(condition));
+    }
+
+    @Test
+    public void paddedSizeTest() throws Exception {
+        // 팀 id 목록은 2의 제곱수 개로 채운다 (IN 절 모양이 개수마다 달라지지 않도록)
+        assertThat(MemberSearchJsonWriter.paddedSize(1)).isEqualTo(1);
+        assertThat(MemberSearchJsonWriter.paddedSize(2)).isEqualTo(2);
+        assertThat(MemberSearchJsonWriter.paddedSize(3)).isEqualTo(4);
+        assertThat(MemberSearchJsonWriter.paddedSize(512)).isEqualTo(512);
+        assertThat(MemberSearchJsonWriter.paddedSize(513)).isEqualTo(1024);
+    }
+
+    private MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
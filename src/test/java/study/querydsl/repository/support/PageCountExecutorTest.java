@@ -0,0 +1,171 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.cache.MemberWriteTracker;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 트랜잭션 밖에서 호출해야 count 가 풀에서 실행되므로 (@Transactional 이면 순차 실행) 커밋하고 끝나고 직접 지운다.
+ */
+@SpringBootTest
+class PageCountExecutorTest {
+
+    @Autowired
+    PageCountExecutor pageCountExecutor;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberWriteTracker memberWriteTracker;
+
+    @AfterEach
+    public void deleteAll() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from team_stats");
+        memberWriteTracker.onBulkWrite();
+    }
+
+    @Test
+    public void searchComplexConcurrentTest() throws Exception {
+        //given
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 40; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                em.persist(new Member("member" + i, 20 + i, team));
+            }
+        });
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(1, 10);
+
+        //when
+        Page<MemberTeamDto> expected = memberRepository.searchComplex(condition, pageRequest);
+        Page<MemberTeamDto> result = memberRepository.searchComplexConcurrent(condition, pageRequest);
+
+        //then
+        assertThat(result.getTotalElements()).isEqualTo(40);
+        assertThat(result.getContent()).hasSize(10);
+        assertThat(result.getContent()).isEqualTo(expected.getContent());
+    }
+
+    @Test
+    public void applyPaginationConcurrentlyTest() throws Exception {
+        //given
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Team[] teams = {new Team("teamA"), new Team("teamB")};
+            for (Team team : teams) {
+                em.persist(team);
+            }
+            for (int i = 0; i < 30; i++) {
+                em.persist(new Member("member" + i, 20 + i % 10, teams[i % 2]));
+            }
+        });
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(23);
+        condition.setAgeLoe(27);
+        PageRequest pageRequest = PageRequest.of(1, 3, Sort.by("id"));
+
+        //when
+        Page<Member> expected = memberTestRepository.applyPagination(condition, pageRequest);
+        Page<Member> result = memberTestRepository.applyPaginationConcurrently(condition, pageRequest);
+
+        //then
+        // teamB 는 홀수 번째 회원 -> 나이 21, 23, 25, 27, 29 가 3번씩, 그중 23 ~ 27
+        assertThat(result.getTotalElements()).isEqualTo(9).isEqualTo(expected.getTotalElements());
+        assertThat(result.getContent()).extracting(Member::getId)
+                .containsExactlyElementsOf(expected.map(Member::getId).getContent());
+        assertThat(result.getContent()).extracting(Member::getUsername)
+                .containsExactly("member13", "member15", "member17");
+    }
+
+    @Test
+    public void countOnPoolTest() throws Exception {
+        //given
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        //when
+        Page<String> page = pageCountExecutor.getPage(() -> Arrays.asList("a", "b"), PageRequest.of(0, 2), () -> {
+            countThread.set(Thread.currentThread().getName());
+            return 5;
+        });
+
+        //then
+        assertThat(page.getContent()).containsExactly("a", "b");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(countThread.get()).startsWith("page-count-").isNotEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void cancelCountOnContentFailureTest() throws Exception {
+        //given
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch countInterrupted = new CountDownLatch(1);
+
+        //when
+        assertThatThrownBy(() -> pageCountExecutor.getPage(() -> {
+            await(countStarted);
+            throw new IllegalStateException("content failed");
+        }, PageRequest.of(0, 2), () -> {
+            countStarted.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                countInterrupted.countDown();
+            }
+            return 0;
+        })).isInstanceOf(IllegalStateException.class).hasMessage("content failed");
+
+        //then
+        // content 가 실패하면 실행 중인 count 는 취소된다 (JDBC 쿼리는 cancelQuery, 여기서는 interrupt)
+        assertThat(countInterrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void countFailureTest() throws Exception {
+        //when
+        //then
+        assertThatThrownBy(() -> pageCountExecutor.getPage(() -> Arrays.asList("a", "b"), PageRequest.of(0, 2), () -> {
+            throw new IllegalArgumentException("count failed");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("count failed");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
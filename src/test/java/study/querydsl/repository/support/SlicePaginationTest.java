@@ -0,0 +1,90 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SlicePaginationTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 25; i++) {
+            em.persist(new Member(String.format("member%02d", i), 20 + i, i % 5 == 0 ? teamB : teamA));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void sameAsApplyPaginationTest() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(22);
+
+        for (int page = 0; page < 4; page++) {
+            PageRequest pageable = PageRequest.of(page, 6, Sort.by(Sort.Order.desc("age")));
+
+            //when
+            Page<Member> expected = memberTestRepository.applyPagination(condition, pageable);
+            Slice<Member> result = memberTestRepository.applySlicePagination(condition, pageable);
+
+            //then
+            assertThat(result.getContent())
+                    .as("page %d", page)
+                    .containsExactlyElementsOf(expected.getContent()); // 같은 영속성 컨텍스트의 같은 인스턴스
+            assertThat(result.hasNext()).as("page %d", page).isEqualTo(expected.hasNext());
+        }
+    }
+
+    @Test
+    public void hasNextTest() throws Exception {
+        //given
+        // teamA 이면서 23살 이상: 23 ~ 44 살 중 teamB(25, 30, 35, 40 살)를 뺀 18명
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(23);
+
+        //when
+        Slice<Member> first = memberTestRepository.applySlicePagination(condition, PageRequest.of(0, 9, Sort.by("age")));
+        Slice<Member> last = memberTestRepository.applySlicePagination(condition, PageRequest.of(1, 9, Sort.by("age")));
+        Slice<Member> empty = memberTestRepository.applySlicePagination(condition, PageRequest.of(2, 9, Sort.by("age")));
+
+        //then
+        // 마지막 페이지가 딱 pageSize 건이어도 pageSize + 1 번째가 없으므로 hasNext 는 false
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting(Member::getUsername)
+                .containsExactly("member03", "member04", "member06", "member07", "member08",
+                        "member09", "member11", "member12", "member13");
+        assertThat(last.hasNext()).isFalse();
+        assertThat(last.getContent()).hasSize(9);
+        assertThat(last.getContent()).extracting(Member::getUsername).last().isEqualTo("member24");
+        assertThat(empty.hasNext()).isFalse();
+        assertThat(empty.getContent()).isEmpty();
+    }
+}
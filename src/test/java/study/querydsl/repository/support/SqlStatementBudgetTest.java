@@ -0,0 +1,68 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class SqlStatementBudgetTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, 20 + i, team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 회원 조회 1번 + 팀 lazy 로딩은 default_batch_fetch_size 로 IN 조회 1번
+     */
+    @Test
+    @ExpectStatements(max = 2, maxRepeats = 1)
+    public void lazyTeamLoadingIsBatchedTest() throws Exception {
+        //when
+        List<Member> members = memberJpaRepository.findAll_Querydsl();
+        members.forEach(member -> member.getTeam().getName());
+
+        //then
+        assertThat(members).hasSize(10);
+    }
+
+    @Test
+    public void rejectRepeatedStatementTest() throws Exception {
+        //given
+        SqlStatementBudget budget = new SqlStatementBudget(true, 50, 2, SqlStatementBudget.Mode.REJECT);
+
+        //when
+        try (SqlStatementBudget.Scope scope = budget.open("test")) {
+            budget.inspect("select * from team where id in (?, ?)");
+            budget.inspect("select * from team where id in (?, ?, ?)"); // 개수만 다른 IN 목록은 같은 모양
+
+            //then
+            assertThat(scope.getMaxRepeats()).isEqualTo(2);
+            assertThatThrownBy(() -> budget.inspect("select * from team where id in (?)"))
+                    .isInstanceOf(StatementBudgetExceededException.class);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlTracerTest {
+
+    @Test
+    public void ringBufferTest() throws Exception {
+        //given
+        SqlTracer tracer = new SqlTracer(0, Duration.ofMillis(10), 4);
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            tracer.record("select " + i, new Object[]{i}, 1, 0, Duration.ofMillis(20).toNanos());
+        }
+        tracer.record("select fast", null, 0, 0, Duration.ofMillis(1).toNanos());
+
+        //then
+        List<SqlTracer.SlowStatement> slowStatements = tracer.slowStatements();
+        assertThat(tracer.getExecuted()).isEqualTo(11);
+        assertThat(tracer.getSlow()).isEqualTo(10);
+        // 가장 최근 4건만 남는다
+        assertThat(slowStatements).extracting("sql").containsExactly("select 6", "select 7", "select 8", "select 9");
+        assertThat(slowStatements.get(3).getBinds()).containsExactly("9");
+    }
+
+    @Test
+    public void tracingDataSourceTest() throws Exception {
+        //given
+        SqlTracer tracer = new SqlTracer(0, Duration.ZERO, 16); // 모든 SQL 을 느린 SQL 로 남긴다
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:trace;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new TracingDataSource(dataSource, tracer));
+
+        //when
+        jdbcTemplate.execute("create table trace_test (id int, name varchar(10))");
+        jdbcTemplate.update("insert into trace_test values (?, ?)", 1, "a");
+        jdbcTemplate.queryForObject("select name from trace_test where id = ?", String.class, 1);
+
+        //then
+        List<SqlTracer.SlowStatement> slowStatements = tracer.slowStatements();
+        assertThat(slowStatements).hasSize(3);
+        assertThat(slowStatements.get(1).getBinds()).containsExactly("1", "a");
+        assertThat(slowStatements.get(2).getSql()).isEqualTo("select name from trace_test where id = ?");
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트 메서드 실행 동안 SqlStatementBudget 범위를 열고, 끝나면 @ExpectStatements 와 비교한다.
+ * SpringExtension (@SpringBootTest) 과 같이 써야 한다.
+ */
+public class StatementCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementCountExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        SqlStatementBudget budget = SpringExtension.getApplicationContext(context).getBean(SqlStatementBudget.class);
+        context.getStore(NAMESPACE).put("scope", budget.open(context.getDisplayName()));
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementBudget.Scope scope = context.getStore(NAMESPACE).remove("scope", SqlStatementBudget.Scope.class);
+        scope.close();
+
+        AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), ExpectStatements.class).ifPresent(expected -> {
+            assertThat(scope.getStatements())
+                    .as("SQL 수 %s", scope.getRepeats())
+                    .isLessThanOrEqualTo(expected.max());
+            assertThat(scope.getMaxRepeats())
+                    .as("같은 SQL 반복 횟수 (N+1 의심) %s", scope.getRepeats())
+                    .isLessThanOrEqualTo(expected.maxRepeats());
+        });
+    }
+}